@@ -0,0 +1,70 @@
+package io.github.nejckorasa.s3.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Generates benchmark inputs in memory, the same parameters always generate the same bytes
+ */
+final class BenchmarkData {
+
+    static final String ENTRY_NAME = "data.txt";
+
+    private static final byte[] ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789,;".getBytes();
+    private static final long SEED = 42;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Generates text of lines ending with a line feed. Each line starts with random characters, a fraction of the line given by
+     * randomFraction, and is padded with a repeated character, so that randomFraction controls how well the text compresses.
+     *
+     * @param bytes          size of the text
+     * @param lineLength     length of a line, including the line feed
+     * @param randomFraction fraction of each line that is random, between 0 and 1
+     */
+    static byte[] text(int bytes, int lineLength, double randomFraction) {
+        var random = new Random(SEED);
+        byte[] text = new byte[bytes];
+        int randomBytes = (int) ((lineLength - 1) * randomFraction);
+        for (int lineStart = 0; lineStart < bytes; lineStart += lineLength) {
+            int lineEnd = Math.min(lineStart + lineLength, bytes) - 1;
+            for (int i = lineStart; i < lineEnd; i++) {
+                text[i] = i - lineStart < randomBytes ? ALPHABET[random.nextInt(ALPHABET.length)] : (byte) '-';
+            }
+            text[lineEnd] = '\n';
+        }
+        return text;
+    }
+
+    /**
+     * @param deflated deflate the entry, otherwise it is stored
+     * @return zip archive with a single entry named {@link #ENTRY_NAME}
+     */
+    static byte[] zip(byte[] content, boolean deflated) {
+        var out = new ByteArrayOutputStream(content.length + 1024);
+        try (var zipOutputStream = new ZipOutputStream(out)) {
+            var entry = new ZipEntry(ENTRY_NAME);
+            if (!deflated) {
+                var crc = new CRC32();
+                crc.update(content);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(content.length);
+                entry.setCompressedSize(content.length);
+                entry.setCrc(crc.getValue());
+            }
+            zipOutputStream.putNextEntry(entry);
+            zipOutputStream.write(content);
+            zipOutputStream.closeEntry();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
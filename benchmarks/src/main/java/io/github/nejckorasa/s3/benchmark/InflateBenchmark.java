@@ -0,0 +1,58 @@
+package io.github.nejckorasa.s3.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipInputStream;
+
+import static com.amazonaws.services.s3.internal.Constants.MB;
+
+/**
+ * Throughput of inflating an entry with {@link ZipInputStream}, the way archives are read as a stream, without any S3 requests
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InflateBenchmark {
+
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    @Param({"16", "64"})
+    private int entrySizeMb;
+
+    /**
+     * Fraction of each line that is random, higher compresses worse
+     */
+    @Param({"0.1", "0.9"})
+    private double randomFraction;
+
+    @Param({"100"})
+    private int lineLength;
+
+    private byte[] archive;
+
+    @Setup
+    public void setUp() {
+        archive = BenchmarkData.zip(BenchmarkData.text(entrySizeMb * MB, lineLength, randomFraction), true);
+    }
+
+    @Benchmark
+    public long inflate() throws IOException {
+        byte[] buffer = new byte[READ_BUFFER_SIZE];
+        long bytes = 0;
+        try (var zipInputStream = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            while (zipInputStream.getNextEntry() != null) {
+                int bytesRead;
+                while ((bytesRead = zipInputStream.read(buffer)) != -1) {
+                    bytes += bytesRead;
+                }
+            }
+        }
+        return bytes;
+    }
+}
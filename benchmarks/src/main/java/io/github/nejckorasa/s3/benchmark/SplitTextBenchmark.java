@@ -0,0 +1,73 @@
+package io.github.nejckorasa.s3.benchmark;
+
+import io.github.nejckorasa.s3.client.S3Operations;
+import io.github.nejckorasa.s3.unzip.S3ZipFile;
+import io.github.nejckorasa.s3.unzip.strategy.SplitTextUnzipStrategy;
+import io.github.nejckorasa.s3.upload.PartBufferPool;
+import io.github.nejckorasa.s3.upload.S3UploadScheduler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipInputStream;
+
+import static com.amazonaws.services.s3.internal.Constants.MB;
+
+/**
+ * Throughput of {@link SplitTextUnzipStrategy} splitting a stored entry into shards, uploaded to a stub without latency, so that the
+ * line splitting loop and part buffering dominate
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SplitTextBenchmark {
+
+    @Param({"64"})
+    private int entrySizeMb;
+
+    @Param({"80", "1000"})
+    private int lineLength;
+
+    @Param({"5", "20"})
+    private int partSizeMb;
+
+    @Param({"16"})
+    private int fileSizeMb;
+
+    private byte[] archive;
+    private S3Operations s3Client;
+    private S3UploadScheduler uploadScheduler;
+    private PartBufferPool partBufferPool;
+    private SplitTextUnzipStrategy strategy;
+
+    @Setup
+    public void setUp() {
+        archive = BenchmarkData.zip(BenchmarkData.text(entrySizeMb * MB, lineLength, 0.5), false);
+        s3Client = S3Operations.of(StubS3.create(0));
+        uploadScheduler = new S3UploadScheduler();
+        partBufferPool = new PartBufferPool(16L * partSizeMb * MB, false);
+        strategy = new SplitTextUnzipStrategy()
+                .withUploadPartBytesLimit(partSizeMb * MB)
+                .withFileBytesLimit((long) fileSizeMb * MB);
+    }
+
+    @TearDown
+    public void tearDown() {
+        uploadScheduler.close();
+    }
+
+    @Benchmark
+    public void splitText() throws IOException {
+        try (var zipInputStream = new ZipInputStream(new ByteArrayInputStream(archive))) {
+            var zipEntry = zipInputStream.getNextEntry();
+            var zipFile = new S3ZipFile("bucket", "output/", zipInputStream, zipEntry)
+                    .withUploadScheduler(uploadScheduler)
+                    .withPartBufferPool(partBufferPool);
+            strategy.unzip(zipFile, s3Client);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package io.github.nejckorasa.s3.benchmark;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process {@link AmazonS3} that accepts uploads without storing them. Uploaded data is read and dropped, each upload request takes at
+ * least the given latency. Only requests made by uploads are supported.
+ */
+final class StubS3 {
+
+    private static final int DRAIN_BUFFER_SIZE = 64 * 1024;
+
+    private StubS3() {
+    }
+
+    /**
+     * @param latencyMillis latency added to each upload request, 0 for none
+     */
+    static AmazonS3 create(long latencyMillis) {
+        var uploadIds = new AtomicLong();
+        return (AmazonS3) Proxy.newProxyInstance(
+                AmazonS3.class.getClassLoader(),
+                new Class<?>[]{AmazonS3.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "initiateMultipartUpload":
+                            var initiateResult = new InitiateMultipartUploadResult();
+                            initiateResult.setUploadId("upload-" + uploadIds.incrementAndGet());
+                            return initiateResult;
+                        case "uploadPart":
+                            var uploadPartRequest = (UploadPartRequest) args[0];
+                            drain(uploadPartRequest.getInputStream());
+                            sleep(latencyMillis);
+                            var uploadPartResult = new UploadPartResult();
+                            uploadPartResult.setPartNumber(uploadPartRequest.getPartNumber());
+                            uploadPartResult.setETag("etag-" + uploadPartRequest.getPartNumber());
+                            return uploadPartResult;
+                        case "putObject":
+                            if (args.length == 1 && args[0] instanceof PutObjectRequest) {
+                                drain(((PutObjectRequest) args[0]).getInputStream());
+                                sleep(latencyMillis);
+                                return new PutObjectResult();
+                            }
+                            break;
+                        case "completeMultipartUpload":
+                            sleep(latencyMillis);
+                            return new CompleteMultipartUploadResult();
+                        case "abortMultipartUpload":
+                            return null;
+                        default:
+                            break;
+                    }
+                    throw new UnsupportedOperationException("Stub does not support " + method);
+                });
+    }
+
+    private static void drain(InputStream inputStream) throws IOException {
+        byte[] buffer = new byte[DRAIN_BUFFER_SIZE];
+        //noinspection StatementWithEmptyBody
+        while (inputStream.read(buffer) != -1) {
+        }
+    }
+
+    private static void sleep(long millis) throws InterruptedException {
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.nejckorasa.s3.benchmark;
+
+import com.amazonaws.services.s3.AmazonS3;
+import io.github.nejckorasa.s3.upload.PartBufferPool;
+import io.github.nejckorasa.s3.upload.S3MultipartUpload;
+import io.github.nejckorasa.s3.upload.S3UploadScheduler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.amazonaws.services.s3.internal.Constants.MB;
+
+/**
+ * Time of uploading an object with {@link S3MultipartUpload}, parts buffered in a bounded pool and uploaded on a shared scheduler to a
+ * stub that adds latency to each request, as S3 would
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UploadBenchmark {
+
+    @Param({"128"})
+    private int objectSizeMb;
+
+    @Param({"5", "20"})
+    private int partSizeMb;
+
+    @Param({"0", "20"})
+    private long latencyMillis;
+
+    @Param({"8"})
+    private int threadCount;
+
+    private byte[] data;
+    private AmazonS3 s3Client;
+    private S3UploadScheduler uploadScheduler;
+    private PartBufferPool partBufferPool;
+    private S3MultipartUpload.Config config;
+
+    @Setup
+    public void setUp() {
+        data = BenchmarkData.text(objectSizeMb * MB, 100, 0.5);
+        s3Client = StubS3.create(latencyMillis);
+        uploadScheduler = new S3UploadScheduler(threadCount, 2);
+        partBufferPool = new PartBufferPool(2L * threadCount * partSizeMb * MB, false);
+        config = new S3MultipartUpload.Config()
+                .withUploadPartBytesLimit(partSizeMb * MB)
+                .withThreadCount(threadCount);
+    }
+
+    @TearDown
+    public void tearDown() {
+        uploadScheduler.close();
+    }
+
+    @Benchmark
+    public void upload() {
+        var upload = new S3MultipartUpload("bucket", "object", s3Client, config, uploadScheduler);
+        upload.initialize();
+
+        int partBytes = partSizeMb * MB;
+        for (int offset = 0; offset < data.length; offset += partBytes) {
+            var partBuffer = partBufferPool.acquire(partBytes);
+            partBuffer.write(data, offset, Math.min(partBytes, data.length - offset));
+            if (offset + partBytes < data.length) {
+                upload.uploadPart(partBuffer);
+            } else {
+                upload.uploadFinalPart(partBuffer);
+            }
+        }
+    }
+}
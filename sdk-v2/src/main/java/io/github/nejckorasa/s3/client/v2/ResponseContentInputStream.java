@@ -0,0 +1,58 @@
+package io.github.nejckorasa.s3.client.v2;
+
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.exception.SdkException;
+
+import java.io.IOException;
+
+/**
+ * Content of a v2 response as a v1 {@link S3ObjectInputStream}. Aborting it aborts the response, failures of the v2 client while reading
+ * are reported as {@link IOException}s, like failures of the v1 client's connection.
+ */
+class ResponseContentInputStream extends S3ObjectInputStream {
+
+    private final ResponseInputStream<?> responseStream;
+
+    ResponseContentInputStream(ResponseInputStream<?> responseStream) {
+        super(responseStream, null, false);
+        this.responseStream = responseStream;
+    }
+
+    @Override
+    public int read() throws IOException {
+        try {
+            return super.read();
+        } catch (SdkException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        try {
+            return super.read(b, off, len);
+        } catch (SdkException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        try {
+            return super.skip(n);
+        } catch (SdkException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void abort() {
+        responseStream.abort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        responseStream.close();
+    }
+}
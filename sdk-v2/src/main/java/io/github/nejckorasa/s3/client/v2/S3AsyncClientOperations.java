@@ -0,0 +1,469 @@
+package io.github.nejckorasa.s3.client.v2;
+
+import com.amazonaws.AbortedException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonServiceException.ErrorType;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.AccessControlList;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.CannedAccessControlList;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.ObjectTagging;
+import com.amazonaws.services.s3.model.PartETag;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import com.amazonaws.services.s3.model.SSEAwsKeyManagementParams;
+import com.amazonaws.services.s3.model.SSECustomerKey;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import io.github.nejckorasa.s3.client.S3Operations;
+import io.github.nejckorasa.s3.upload.VirtualThreads;
+import lombok.NonNull;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * {@link S3Operations} of the AWS SDK v2 {@link S3AsyncClient}, built with the Netty or the CRT HTTP client.
+ *
+ * <p> Requests are sent without blocking I/O threads, many at once over few connections, while the calling thread waits for the response,
+ * as the library expects. Downloads are streamed, uploads read their data on the request body executor as the client sends it.
+ *
+ * <p> SDK v1 requests are converted to v2 requests with their bucket, key, range and ETag constraints, content type, encoding,
+ * cache control and disposition, user metadata, canned ACL, tagging, storage class and SSE-S3 or SSE-KMS encryption. Customer-provided
+ * encryption keys (SSE-C), access control lists and files as part data are not supported. S3 errors are converted to
+ * {@link AmazonS3Exception}s and other failures to {@link SdkClientException}s, see {@link S3Operations}.
+ */
+public class S3AsyncClientOperations implements S3Operations {
+
+    private static final long UNBOUNDED_RANGE_END = Long.MAX_VALUE - 1;
+
+    private final S3AsyncClient s3Client;
+    private final ExecutorService requestBodyExecutor;
+
+    /**
+     * Creates operations reading upload data on virtual threads, or on platform threads when the runtime does not support them
+     */
+    public S3AsyncClientOperations(@NonNull S3AsyncClient s3Client) {
+        this(s3Client, VirtualThreads.newThreadPerTaskExecutor("s3-request-body-"));
+    }
+
+    /**
+     * @param s3Client            client sending all requests
+     * @param requestBodyExecutor executor reading data of uploads while it is sent, one task per upload request
+     */
+    public S3AsyncClientOperations(@NonNull S3AsyncClient s3Client, @NonNull ExecutorService requestBodyExecutor) {
+        this.s3Client = s3Client;
+        this.requestBodyExecutor = requestBodyExecutor;
+    }
+
+    public S3AsyncClient getS3Client() {
+        return s3Client;
+    }
+
+    @Override
+    public ListObjectsV2Result listObjectsV2(ListObjectsV2Request request) {
+        var response = join(s3Client.listObjectsV2(builder -> builder
+                .bucket(request.getBucketName())
+                .prefix(request.getPrefix())
+                .delimiter(request.getDelimiter())
+                .maxKeys(request.getMaxKeys())
+                .continuationToken(request.getContinuationToken())
+                .startAfter(request.getStartAfter())));
+
+        var result = new ListObjectsV2Result();
+        result.setBucketName(request.getBucketName());
+        result.setPrefix(request.getPrefix());
+        result.setDelimiter(request.getDelimiter());
+        result.setContinuationToken(response.continuationToken());
+        result.setNextContinuationToken(response.nextContinuationToken());
+        result.setStartAfter(response.startAfter());
+        result.setTruncated(Boolean.TRUE.equals(response.isTruncated()));
+        result.setKeyCount(response.keyCount() != null ? response.keyCount() : response.contents().size());
+        if (response.maxKeys() != null) {
+            result.setMaxKeys(response.maxKeys());
+        }
+        response.contents().forEach(object -> {
+            var summary = new S3ObjectSummary();
+            summary.setBucketName(request.getBucketName());
+            summary.setKey(object.key());
+            summary.setETag(removeQuotes(object.eTag()));
+            summary.setSize(object.size() != null ? object.size() : 0);
+            summary.setLastModified(toDate(object.lastModified()));
+            summary.setStorageClass(object.storageClassAsString());
+            result.getObjectSummaries().add(summary);
+        });
+        response.commonPrefixes().forEach(commonPrefix -> result.getCommonPrefixes().add(commonPrefix.prefix()));
+        return result;
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(GetObjectMetadataRequest request) {
+        assertNoCustomerKey(request.getSSECustomerKey());
+        var response = join(s3Client.headObject(builder -> builder
+                .bucket(request.getBucketName())
+                .key(request.getKey())
+                .versionId(request.getVersionId())));
+
+        return toObjectMetadata(response.contentLength(), response.contentType(), response.eTag(), response.lastModified(), null,
+                response.metadata());
+    }
+
+    /**
+     * @return object with its content streamed as it is read, or null if the ETag constraints of the request are not met, like the v1
+     * client
+     */
+    @Override
+    public S3Object getObject(GetObjectRequest request) {
+        assertNoCustomerKey(request.getSSECustomerKey());
+        var v2Request = software.amazon.awssdk.services.s3.model.GetObjectRequest.builder()
+                .bucket(request.getBucketName())
+                .key(request.getKey())
+                .versionId(request.getVersionId())
+                .range(toRange(request.getRange()))
+                .ifMatch(join(request.getMatchingETagConstraints()))
+                .ifNoneMatch(join(request.getNonmatchingETagConstraints()))
+                .build();
+
+        ResponseInputStream<GetObjectResponse> responseStream;
+        try {
+            responseStream = join(s3Client.getObject(v2Request, AsyncResponseTransformer.toBlockingInputStream()));
+        } catch (AmazonServiceException e) {
+            if (e.getStatusCode() == 412) {
+                return null;
+            }
+            throw e;
+        }
+
+        var response = responseStream.response();
+        var s3Object = new S3Object();
+        s3Object.setBucketName(request.getBucketName());
+        s3Object.setKey(request.getKey());
+        s3Object.setObjectMetadata(toObjectMetadata(response.contentLength(), response.contentType(), response.eTag(),
+                response.lastModified(), response.contentRange(), response.metadata()));
+        s3Object.setObjectContent(new ResponseContentInputStream(responseStream));
+        return s3Object;
+    }
+
+    @Override
+    public PutObjectResult putObject(PutObjectRequest request) {
+        assertNoCustomerKey(request.getSSECustomerKey());
+        assertNoAccessControlList(request.getAccessControlList());
+        var metadata = request.getMetadata() != null ? request.getMetadata() : new ObjectMetadata();
+        var sse = sse(metadata, request.getSSEAwsKeyManagementParams());
+
+        var v2Request = software.amazon.awssdk.services.s3.model.PutObjectRequest.builder()
+                .bucket(request.getBucketName())
+                .key(request.getKey())
+                .contentType(metadata.getContentType())
+                .contentEncoding(metadata.getContentEncoding())
+                .cacheControl(metadata.getCacheControl())
+                .contentDisposition(metadata.getContentDisposition())
+                .metadata(metadata.getUserMetadata())
+                .acl(toAcl(request.getCannedAcl()))
+                .tagging(toTagging(request.getTagging()))
+                .storageClass(request.getStorageClass())
+                .serverSideEncryption(sse)
+                .ssekmsKeyId(kmsKeyId(request.getSSEAwsKeyManagementParams()));
+
+        AsyncRequestBody body;
+        if (request.getFile() != null) {
+            body = AsyncRequestBody.fromFile(request.getFile().toPath());
+        } else if (metadata.getRawMetadataValue(Headers.CONTENT_LENGTH) != null) {
+            v2Request.contentLength(metadata.getContentLength());
+            body = AsyncRequestBody.fromInputStream(request.getInputStream(), metadata.getContentLength(), requestBodyExecutor);
+        } else {
+            body = AsyncRequestBody.fromBytes(readAllBytes(request.getInputStream()));
+        }
+
+        var response = join(s3Client.putObject(v2Request.build(), body));
+        var result = new PutObjectResult();
+        result.setETag(removeQuotes(response.eTag()));
+        result.setVersionId(response.versionId());
+        return result;
+    }
+
+    @Override
+    public void deleteObject(DeleteObjectRequest request) {
+        join(s3Client.deleteObject(builder -> builder.bucket(request.getBucketName()).key(request.getKey())));
+    }
+
+    @Override
+    public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+        assertNoCustomerKey(request.getSSECustomerKey());
+        assertNoAccessControlList(request.getAccessControlList());
+        var metadata = request.getObjectMetadata() != null ? request.getObjectMetadata() : new ObjectMetadata();
+
+        var response = join(s3Client.createMultipartUpload(builder -> builder
+                .bucket(request.getBucketName())
+                .key(request.getKey())
+                .contentType(metadata.getContentType())
+                .contentEncoding(metadata.getContentEncoding())
+                .cacheControl(metadata.getCacheControl())
+                .contentDisposition(metadata.getContentDisposition())
+                .metadata(metadata.getUserMetadata())
+                .acl(toAcl(request.getCannedACL()))
+                .tagging(toTagging(request.getTagging()))
+                .storageClass(request.getStorageClass() != null ? request.getStorageClass().toString() : null)
+                .serverSideEncryption(sse(metadata, request.getSSEAwsKeyManagementParams()))
+                .ssekmsKeyId(kmsKeyId(request.getSSEAwsKeyManagementParams()))));
+
+        var result = new InitiateMultipartUploadResult();
+        result.setBucketName(response.bucket());
+        result.setKey(response.key());
+        result.setUploadId(response.uploadId());
+        result.setSSEAlgorithm(response.serverSideEncryptionAsString());
+        return result;
+    }
+
+    @Override
+    public UploadPartResult uploadPart(UploadPartRequest request) {
+        assertNoCustomerKey(request.getSSECustomerKey());
+        if (request.getFile() != null) {
+            throw new UnsupportedOperationException("Uploading parts from files is not supported, upload them from input streams");
+        }
+
+        var body = AsyncRequestBody.fromInputStream(request.getInputStream(), request.getPartSize(), requestBodyExecutor);
+        var response = join(s3Client.uploadPart(builder -> builder
+                .bucket(request.getBucketName())
+                .key(request.getKey())
+                .uploadId(request.getUploadId())
+                .partNumber(request.getPartNumber())
+                .contentLength(request.getPartSize())
+                .contentMD5(request.getMd5Digest()), body));
+
+        var result = new UploadPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag(removeQuotes(response.eTag()));
+        return result;
+    }
+
+    @Override
+    public CopyPartResult copyPart(CopyPartRequest request) {
+        assertNoCustomerKey(request.getSourceSSECustomerKey());
+        assertNoCustomerKey(request.getDestinationSSECustomerKey());
+        var copySourceRange = request.getFirstByte() != null && request.getLastByte() != null
+                ? "bytes=" + request.getFirstByte() + "-" + request.getLastByte()
+                : null;
+
+        var response = join(s3Client.uploadPartCopy(builder -> builder
+                .sourceBucket(request.getSourceBucketName())
+                .sourceKey(request.getSourceKey())
+                .sourceVersionId(request.getSourceVersionId())
+                .destinationBucket(request.getDestinationBucketName())
+                .destinationKey(request.getDestinationKey())
+                .uploadId(request.getUploadId())
+                .partNumber(request.getPartNumber())
+                .copySourceRange(copySourceRange)));
+
+        var result = new CopyPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag(removeQuotes(response.copyPartResult().eTag()));
+        result.setLastModifiedDate(toDate(response.copyPartResult().lastModified()));
+        return result;
+    }
+
+    @Override
+    public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        // parts must be listed in ascending order, the v1 client sorts them too
+        List<CompletedPart> parts = request.getPartETags().stream()
+                .sorted(Comparator.comparingInt(PartETag::getPartNumber))
+                .map(partETag -> CompletedPart.builder().partNumber(partETag.getPartNumber()).eTag(partETag.getETag()).build())
+                .collect(Collectors.toList());
+
+        var response = join(s3Client.completeMultipartUpload(builder -> builder
+                .bucket(request.getBucketName())
+                .key(request.getKey())
+                .uploadId(request.getUploadId())
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())));
+
+        var result = new CompleteMultipartUploadResult();
+        result.setBucketName(response.bucket());
+        result.setKey(response.key());
+        result.setLocation(response.location());
+        result.setETag(removeQuotes(response.eTag()));
+        result.setVersionId(response.versionId());
+        return result;
+    }
+
+    @Override
+    public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+        join(s3Client.abortMultipartUpload(builder -> builder
+                .bucket(request.getBucketName())
+                .key(request.getKey())
+                .uploadId(request.getUploadId())));
+    }
+
+    /**
+     * Waits for the response, cancels the request if interrupted
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AbortedException("Interrupted while waiting for S3 response", e);
+        } catch (ExecutionException e) {
+            throw toV1Exception(e.getCause());
+        }
+    }
+
+    /**
+     * @return v1 exception of a failed v2 request, with status and error code of S3 errors
+     */
+    static RuntimeException toV1Exception(Throwable t) {
+        while (t instanceof CompletionException && t.getCause() != null) {
+            t = t.getCause();
+        }
+        if (t instanceof AwsServiceException) {
+            var serviceException = (AwsServiceException) t;
+            var details = serviceException.awsErrorDetails();
+            var message = details != null && details.errorMessage() != null ? details.errorMessage() : serviceException.getMessage();
+            var exception = new AmazonS3Exception(message, serviceException);
+            exception.setStatusCode(serviceException.statusCode());
+            exception.setErrorCode(details != null ? details.errorCode() : null);
+            exception.setErrorType(serviceException.statusCode() >= 500 ? ErrorType.Service : ErrorType.Client);
+            exception.setRequestId(serviceException.requestId());
+            exception.setServiceName("Amazon S3");
+            if (serviceException instanceof S3Exception) {
+                exception.setExtendedRequestId(serviceException.extendedRequestId());
+            }
+            return exception;
+        }
+        if (t instanceof SdkException || t instanceof IOException) {
+            return new SdkClientException(t.getMessage(), t);
+        }
+        if (t instanceof RuntimeException) {
+            return (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new SdkClientException(t.getMessage(), t);
+    }
+
+    private static ObjectMetadata toObjectMetadata(Long contentLength, String contentType, String eTag, Instant lastModified,
+                                                   String contentRange, Map<String, String> userMetadata) {
+        var metadata = new ObjectMetadata();
+        if (contentLength != null) {
+            metadata.setContentLength(contentLength);
+        }
+        if (contentType != null) {
+            metadata.setContentType(contentType);
+        }
+        if (eTag != null) {
+            metadata.setHeader(Headers.ETAG, removeQuotes(eTag));
+        }
+        if (contentRange != null) {
+            metadata.setHeader(Headers.CONTENT_RANGE, contentRange);
+        }
+        metadata.setLastModified(toDate(lastModified));
+        metadata.setUserMetadata(userMetadata);
+        return metadata;
+    }
+
+    private static String toRange(long[] range) {
+        if (range == null) {
+            return null;
+        }
+        if (range.length == 1 || range[1] >= UNBOUNDED_RANGE_END) {
+            return "bytes=" + range[0] + "-";
+        }
+        return "bytes=" + range[0] + "-" + range[1];
+    }
+
+    private static String join(List<String> eTags) {
+        return eTags == null || eTags.isEmpty() ? null : String.join(",", eTags);
+    }
+
+    private static String toAcl(CannedAccessControlList cannedAcl) {
+        return cannedAcl != null ? cannedAcl.toString() : null;
+    }
+
+    private static String toTagging(ObjectTagging tagging) {
+        if (tagging == null || tagging.getTagSet() == null || tagging.getTagSet().isEmpty()) {
+            return null;
+        }
+        return tagging.getTagSet().stream()
+                .map(tag -> URLEncoder.encode(tag.getKey(), UTF_8) + "=" + URLEncoder.encode(tag.getValue(), UTF_8))
+                .collect(Collectors.joining("&"));
+    }
+
+    private static String sse(ObjectMetadata metadata, SSEAwsKeyManagementParams kmsParams) {
+        return kmsParams != null ? kmsParams.getEncryption() : metadata.getSSEAlgorithm();
+    }
+
+    private static String kmsKeyId(SSEAwsKeyManagementParams kmsParams) {
+        return kmsParams != null ? kmsParams.getAwsKmsKeyId() : null;
+    }
+
+    private static void assertNoCustomerKey(SSECustomerKey customerKey) {
+        if (customerKey != null) {
+            throw new UnsupportedOperationException("Customer-provided encryption keys (SSE-C) are not supported");
+        }
+    }
+
+    private static void assertNoAccessControlList(AccessControlList accessControlList) {
+        if (accessControlList != null) {
+            throw new UnsupportedOperationException("Access control lists are not supported, use a canned ACL");
+        }
+    }
+
+    private static String removeQuotes(String eTag) {
+        if (eTag != null && eTag.length() > 1 && eTag.startsWith("\"") && eTag.endsWith("\"")) {
+            return eTag.substring(1, eTag.length() - 1);
+        }
+        return eTag;
+    }
+
+    private static Date toDate(Instant instant) {
+        return instant != null ? Date.from(instant) : null;
+    }
+
+    private static byte[] readAllBytes(InputStream inputStream) {
+        try (inputStream) {
+            return inputStream.readAllBytes();
+        } catch (IOException e) {
+            throw new SdkClientException("Failed to read request body", e);
+        }
+    }
+}
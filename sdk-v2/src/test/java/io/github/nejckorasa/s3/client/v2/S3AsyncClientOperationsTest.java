@@ -0,0 +1,122 @@
+package io.github.nejckorasa.s3.client.v2;
+
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import io.findify.s3mock.S3Mock;
+import io.github.nejckorasa.s3.unzip.S3UnzipManager;
+import io.github.nejckorasa.s3.unzip.checkpoint.Checkpoint;
+import io.github.nejckorasa.s3.unzip.checkpoint.S3CheckpointStore;
+import io.github.nejckorasa.s3.unzip.strategy.NoSplitUnzipStrategy;
+import io.github.nejckorasa.s3.unzip.strategy.StoredCopyUnzipStrategy;
+import io.github.nejckorasa.s3.unzip.strategy.UnzipStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import software.amazon.awssdk.auth.credentials.AnonymousCredentialsProvider;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Set;
+
+import static com.amazonaws.services.s3.internal.Constants.MB;
+import static io.github.nejckorasa.s3.utils.FileUtils.generateStoredZipFile;
+import static io.github.nejckorasa.s3.utils.FileUtils.generateZippedTxtFile;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class S3AsyncClientOperationsTest {
+
+    private static final String BUCKET_NAME = "test-bucket";
+
+    private S3Mock api;
+    private S3AsyncClient s3Client;
+    private S3AsyncClientOperations s3Operations;
+
+    @TempDir
+    private Path tempDir;
+
+    @BeforeEach
+    public void beforeEach() {
+        api = new S3Mock.Builder().withPort(0).withInMemoryBackend().build();
+        int port = api.start().localAddress().getPort();
+
+        s3Client = S3AsyncClient.builder()
+                .endpointOverride(URI.create("http://localhost:" + port))
+                .forcePathStyle(true)
+                .region(Region.US_EAST_1)
+                .credentialsProvider(AnonymousCredentialsProvider.create())
+                .build();
+        s3Client.createBucket(builder -> builder.bucket(BUCKET_NAME)).join();
+        s3Operations = new S3AsyncClientOperations(s3Client);
+    }
+
+    @AfterEach
+    public void afterEach() {
+        s3Client.close();
+        api.shutdown();
+    }
+
+    @Test
+    public void unzipsStreamedAndRandomAccessArchives() {
+        byte[] content = generateZippedTxtFile(tempDir, "file.txt", 300_000);
+        putFile("input/archive.zip", tempDir.resolve("zipped.zip"));
+
+        var strategy = new NoSplitUnzipStrategy().withUploadPartBytesLimit(5 * MB);
+        try (var um = new S3UnzipManager(s3Operations, strategy)) {
+            assertThat(um.unzipObjects(BUCKET_NAME, "input", "streamed").isSuccessful()).isTrue();
+            assertThat(um.withRandomAccess(true).unzipObjects(BUCKET_NAME, "input", "random").isSuccessful()).isTrue();
+        }
+
+        assertThat(content.length).isGreaterThan(5 * MB);
+        assertThat(getBytes("streamed/file.txt")).isEqualTo(content);
+        assertThat(getBytes("random/file.txt")).isEqualTo(content);
+    }
+
+    @Test
+    public void copiesStoredEntries() {
+        byte[] content = generateStoredZipFile(tempDir, "stored.txt", "deflated.txt", 300_000);
+        putFile("input/stored.zip", tempDir.resolve("stored.zip"));
+
+        var strategy = new StoredCopyUnzipStrategy().withCopyPartBytesLimit(5 * MB).withVerifyCrc(true);
+        try (var um = new S3UnzipManager(s3Operations, strategy).withRandomAccess(true)) {
+            assertThat(um.unzipObjects(BUCKET_NAME, "input", "output").isSuccessful()).isTrue();
+        }
+
+        assertThat(getBytes("output/stored.txt")).isEqualTo(content);
+        assertThat(getBytes("output/deflated.txt")).isEqualTo(content);
+    }
+
+    @Test
+    public void rejectsStrategiesImplementingOnlyAmazonS3() {
+        UnzipStrategy strategy = (zipFile, s3Client) -> new NoSplitUnzipStrategy().unzip(zipFile, s3Client);
+        assertThatThrownBy(() -> new S3UnzipManager(s3Operations, strategy))
+                .isInstanceOf(UnsupportedOperationException.class)
+                .hasMessageContaining("override unzip(S3ZipFile, S3Operations)");
+    }
+
+    @Test
+    public void convertsErrorsToV1Exceptions() {
+        assertThatThrownBy(() -> s3Operations.getObject(new GetObjectRequest(BUCKET_NAME, "missing")))
+                .isInstanceOfSatisfying(AmazonS3Exception.class, e -> assertThat(e.getStatusCode()).isEqualTo(404));
+
+        var checkpointStore = new S3CheckpointStore(s3Operations, BUCKET_NAME, "checkpoints");
+        assertThat(checkpointStore.load(BUCKET_NAME, "input/archive.zip")).isEmpty();
+
+        checkpointStore.save(BUCKET_NAME, "input/archive.zip", new Checkpoint("etag", false, Set.of("file.txt")));
+        assertThat(checkpointStore.load(BUCKET_NAME, "input/archive.zip")).hasValueSatisfying(checkpoint ->
+                assertThat(checkpoint.getCompletedEntries()).containsExactly("file.txt"));
+    }
+
+    private void putFile(String key, Path path) {
+        s3Client.putObject(builder -> builder.bucket(BUCKET_NAME).key(key), AsyncRequestBody.fromFile(path)).join();
+    }
+
+    private byte[] getBytes(String key) {
+        return s3Client.getObject(builder -> builder.bucket(BUCKET_NAME).key(key), AsyncResponseTransformer.toBytes()).join().asByteArray();
+    }
+}
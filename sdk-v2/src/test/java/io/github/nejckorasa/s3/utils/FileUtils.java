@@ -0,0 +1,75 @@
+package io.github.nejckorasa.s3.utils;
+
+import lombok.SneakyThrows;
+import lombok.experimental.UtilityClass;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Generates test archives, like the test utilities of the library, which are not published
+ */
+@UtilityClass
+public class FileUtils {
+
+    /**
+     * Generates {@code zipped.zip} with a single DEFLATED entry of generated text
+     */
+    @SneakyThrows
+    public static byte[] generateZippedTxtFile(Path path, String filename, int numberOfLines) {
+        byte[] bytes = generateTxt(numberOfLines);
+        try (var zos = new ZipOutputStream(new FileOutputStream(new File(mkdirs(path), "zipped.zip")))) {
+            zos.putNextEntry(new ZipEntry(filename));
+            zos.write(bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Generates {@code stored.zip} with a STORED and a DEFLATED entry, both containing the same generated text
+     */
+    @SneakyThrows
+    public static byte[] generateStoredZipFile(Path path, String storedFilename, String deflatedFilename, int numberOfLines) {
+        byte[] bytes = generateTxt(numberOfLines);
+        var crc = new CRC32();
+        crc.update(bytes);
+
+        try (var zos = new ZipOutputStream(new FileOutputStream(new File(mkdirs(path), "stored.zip")))) {
+            var storedEntry = new ZipEntry(storedFilename);
+            storedEntry.setMethod(ZipEntry.STORED);
+            storedEntry.setSize(bytes.length);
+            storedEntry.setCompressedSize(bytes.length);
+            storedEntry.setCrc(crc.getValue());
+            zos.putNextEntry(storedEntry);
+            zos.write(bytes);
+            zos.closeEntry();
+
+            zos.putNextEntry(new ZipEntry(deflatedFilename));
+            zos.write(bytes);
+            zos.closeEntry();
+        }
+        return bytes;
+    }
+
+    private static byte[] generateTxt(int numberOfLines) {
+        var os = new ByteArrayOutputStream();
+        os.writeBytes("COL1, COL2, COL3, COL4\n".getBytes(UTF_8));
+        for (int i = 1; i <= numberOfLines; i++) {
+            os.writeBytes(("val" + i + "_1, val" + i + "_2, val" + i + "_3, val" + i + "_4\n").getBytes(UTF_8));
+        }
+        return os.toByteArray();
+    }
+
+    private static File mkdirs(Path path) {
+        File dir = path.toFile();
+        dir.mkdirs();
+        return dir;
+    }
+}
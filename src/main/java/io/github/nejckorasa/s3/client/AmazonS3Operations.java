@@ -0,0 +1,88 @@
+package io.github.nejckorasa.s3.client;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import lombok.NonNull;
+
+/**
+ * {@link S3Operations} of the AWS SDK v1 {@link AmazonS3} client
+ */
+public final class AmazonS3Operations implements S3Operations {
+
+    private final AmazonS3 s3Client;
+
+    public AmazonS3Operations(@NonNull AmazonS3 s3Client) {
+        this.s3Client = s3Client;
+    }
+
+    public AmazonS3 getS3Client() {
+        return s3Client;
+    }
+
+    @Override
+    public ListObjectsV2Result listObjectsV2(ListObjectsV2Request request) {
+        return s3Client.listObjectsV2(request);
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(GetObjectMetadataRequest request) {
+        return s3Client.getObjectMetadata(request);
+    }
+
+    @Override
+    public S3Object getObject(GetObjectRequest request) {
+        return s3Client.getObject(request);
+    }
+
+    @Override
+    public PutObjectResult putObject(PutObjectRequest request) {
+        return s3Client.putObject(request);
+    }
+
+    @Override
+    public void deleteObject(DeleteObjectRequest request) {
+        s3Client.deleteObject(request);
+    }
+
+    @Override
+    public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+        return s3Client.initiateMultipartUpload(request);
+    }
+
+    @Override
+    public UploadPartResult uploadPart(UploadPartRequest request) {
+        return s3Client.uploadPart(request);
+    }
+
+    @Override
+    public CopyPartResult copyPart(CopyPartRequest request) {
+        return s3Client.copyPart(request);
+    }
+
+    @Override
+    public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        return s3Client.completeMultipartUpload(request);
+    }
+
+    @Override
+    public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+        s3Client.abortMultipartUpload(request);
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.nejckorasa.s3.client;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AbortMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadRequest;
+import com.amazonaws.services.s3.model.CompleteMultipartUploadResult;
+import com.amazonaws.services.s3.model.CopyPartRequest;
+import com.amazonaws.services.s3.model.CopyPartResult;
+import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+
+/**
+ * S3 operations used by the library, all of its requests go through this interface. Requests and results are AWS SDK v1 model classes,
+ * so that request customizers of {@link io.github.nejckorasa.s3.upload.S3MultipartUpload.Config} work with any implementation.
+ *
+ * <p> {@link #of(AmazonS3)} adapts the v1 client. Other implementations, e.g. on the SDK v2 {@code S3AsyncClient}, must report failures
+ * as v1 exceptions: errors returned by S3 as {@link com.amazonaws.services.s3.model.AmazonS3Exception} with status and error code,
+ * other failures as {@link com.amazonaws.SdkClientException}. Retries of parts and downloads, throttling detection and missing
+ * checkpoints rely on them.
+ *
+ * <p> Operations are called from many threads at once and block until completed, implementations must be thread-safe.
+ */
+public interface S3Operations {
+
+    static S3Operations of(AmazonS3 s3Client) {
+        return new AmazonS3Operations(s3Client);
+    }
+
+    ListObjectsV2Result listObjectsV2(ListObjectsV2Request request);
+
+    ObjectMetadata getObjectMetadata(GetObjectMetadataRequest request);
+
+    /**
+     * @return object with its content open, the caller closes it or aborts it to stop the download early, or null if the ETag
+     * constraints of the request are not met, like {@link AmazonS3#getObject(GetObjectRequest)}
+     */
+    S3Object getObject(GetObjectRequest request);
+
+    PutObjectResult putObject(PutObjectRequest request);
+
+    void deleteObject(DeleteObjectRequest request);
+
+    InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request);
+
+    UploadPartResult uploadPart(UploadPartRequest request);
+
+    CopyPartResult copyPart(CopyPartRequest request);
+
+    CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request);
+
+    void abortMultipartUpload(AbortMultipartUploadRequest request);
+}
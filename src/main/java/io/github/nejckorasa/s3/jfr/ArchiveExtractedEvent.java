@@ -0,0 +1,39 @@
+package io.github.nejckorasa.s3.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * An archive was unzipped, duration of the event includes reading the archive and all uploads of its entries
+ */
+@Name(ArchiveExtractedEvent.NAME)
+@Label("Archive Extracted")
+@Category("S3 Stream Unzip")
+@Description("An archive was unzipped, including all uploads of its entries")
+@StackTrace(false)
+public final class ArchiveExtractedEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "io.github.nejckorasa.s3.ArchiveExtracted";
+
+    @Label("Bucket")
+    public String bucketName;
+
+    @Label("Key")
+    public String key;
+
+    @Label("Compressed Size")
+    @Description("Bytes of the archive downloaded")
+    @DataAmount
+    public long compressedBytes;
+
+    @Label("Entries")
+    @Description("Entries unzipped, without skipped entries and directories")
+    public int entryCount;
+
+    @Label("Random Access")
+    public boolean randomAccess;
+}
@@ -0,0 +1,43 @@
+package io.github.nejckorasa.s3.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * An entry was read and unzipped by the strategy, uploads of its last parts may still be running
+ */
+@Name(EntryInflatedEvent.NAME)
+@Label("Entry Inflated")
+@Category("S3 Stream Unzip")
+@Description("An entry of an archive was read and unzipped by the strategy")
+@StackTrace(false)
+public final class EntryInflatedEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "io.github.nejckorasa.s3.EntryInflated";
+
+    @Label("Archive Key")
+    public String archiveKey;
+
+    @Label("Entry Name")
+    public String entryName;
+
+    @Label("Compressed Size")
+    @Description("Bytes of the archive read for the entry")
+    @DataAmount
+    public long compressedBytes;
+
+    @Label("Uncompressed Size")
+    @Description("Bytes of the entry read by the strategy")
+    @DataAmount
+    public long uncompressedBytes;
+
+    @Label("Inflate Time")
+    @Description("Time spent reading the entry, without the time spent waiting for the download")
+    @Timespan(Timespan.NANOSECONDS)
+    public long inflateNanos;
+}
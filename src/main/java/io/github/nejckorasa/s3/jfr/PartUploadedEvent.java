@@ -0,0 +1,42 @@
+package io.github.nejckorasa.s3.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A part request of a multipart upload succeeded, duration of the event is the latency of the request
+ */
+@Name(PartUploadedEvent.NAME)
+@Label("Part Uploaded")
+@Category("S3 Stream Unzip")
+@Description("A part of a multipart upload was uploaded or copied")
+@StackTrace(false)
+public final class PartUploadedEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "io.github.nejckorasa.s3.PartUploaded";
+
+    @Label("Bucket")
+    public String bucketName;
+
+    @Label("Key")
+    public String key;
+
+    @Label("Upload Id")
+    public String uploadId;
+
+    @Label("Part Number")
+    public int partNumber;
+
+    @Label("Size")
+    @Description("Bytes uploaded, 0 for parts copied within S3")
+    @DataAmount
+    public long bytes;
+
+    @Label("Retries")
+    @Description("Failed attempts before this one")
+    public int retries;
+}
@@ -0,0 +1,40 @@
+package io.github.nejckorasa.s3.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A shard of a split entry was uploaded, duration of the event spans from its first line to its completed upload
+ */
+@Name(ShardCompletedEvent.NAME)
+@Label("Shard Completed")
+@Category("S3 Stream Unzip")
+@Description("A shard of a split entry was uploaded")
+@StackTrace(false)
+public final class ShardCompletedEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "io.github.nejckorasa.s3.ShardCompleted";
+
+    @Label("Entry Name")
+    public String entryName;
+
+    @Label("Key")
+    public String key;
+
+    @Label("Upload Id")
+    public String uploadId;
+
+    @Label("Shard Number")
+    public int shardNumber;
+
+    @Label("Size")
+    @DataAmount
+    public long bytes;
+
+    @Label("Parts")
+    public int parts;
+}
@@ -0,0 +1,35 @@
+package io.github.nejckorasa.s3.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A multipart upload was aborted, duration of the event is the latency of the abort request. Carries the stack trace of the abort.
+ */
+@Name(UploadAbortedEvent.NAME)
+@Label("Upload Aborted")
+@Category("S3 Stream Unzip")
+@Description("A multipart upload was aborted")
+public final class UploadAbortedEvent extends jdk.jfr.Event {
+
+    public static final String NAME = "io.github.nejckorasa.s3.UploadAborted";
+
+    @Label("Bucket")
+    public String bucketName;
+
+    @Label("Key")
+    public String key;
+
+    @Label("Upload Id")
+    @Description("Upload id, null if the upload was not initialized")
+    public String uploadId;
+
+    @Label("Parts")
+    @Description("Parts submitted before the upload was aborted")
+    public int parts;
+
+    @Label("Cause")
+    public String cause;
+}
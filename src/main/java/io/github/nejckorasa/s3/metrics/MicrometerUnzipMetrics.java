@@ -0,0 +1,181 @@
+package io.github.nejckorasa.s3.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records {@link UnzipMetrics} to a Micrometer {@link MeterRegistry}, with meters named {@code s3.unzip.*}. Latencies of part uploads and
+ * PUT requests are published as percentile histograms.
+ *
+ * <p> Requires {@code io.micrometer:micrometer-core} on the classpath, which is an optional dependency.
+ */
+public class MicrometerUnzipMetrics implements UnzipMetrics {
+
+    private final Counter archiveBytes;
+    private final Timer archiveDuration;
+    private final Counter entryCompressedBytes;
+    private final Counter entryUncompressedBytes;
+    private final Timer entryInflate;
+    private final Timer entryDuration;
+    private final Counter downloadRetries;
+    private final Timer readAheadConsumerStall;
+    private final Timer readAheadReaderStall;
+    private final Timer partUpload;
+    private final DistributionSummary partBytes;
+    private final Counter partRetries;
+    private final Counter partThrottledRetries;
+    private final Timer putObject;
+    private final AtomicInteger queuedTasks = new AtomicInteger();
+    private final AtomicInteger runningTasks = new AtomicInteger();
+    private final Timer uploadBlocked;
+    private final DistributionSummary shardBytes;
+
+    public MicrometerUnzipMetrics(MeterRegistry registry) {
+        this(registry, Tags.empty());
+    }
+
+    /**
+     * @param tags tags added to all meters
+     */
+    public MicrometerUnzipMetrics(MeterRegistry registry, Iterable<Tag> tags) {
+        archiveBytes = Counter.builder("s3.unzip.archive.bytes")
+                .description("Compressed bytes of archives downloaded")
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(registry);
+        archiveDuration = Timer.builder("s3.unzip.archive.duration")
+                .description("Time to unzip an archive, including uploads")
+                .tags(tags)
+                .register(registry);
+        entryCompressedBytes = Counter.builder("s3.unzip.entry.compressed.bytes")
+                .description("Compressed bytes of entries read")
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(registry);
+        entryUncompressedBytes = Counter.builder("s3.unzip.entry.uncompressed.bytes")
+                .description("Uncompressed bytes of entries read")
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(registry);
+        entryInflate = Timer.builder("s3.unzip.entry.inflate")
+                .description("Time spent inflating an entry, without waiting for the download")
+                .tags(tags)
+                .register(registry);
+        entryDuration = Timer.builder("s3.unzip.entry.duration")
+                .description("Time to unzip an entry")
+                .tags(tags)
+                .register(registry);
+        downloadRetries = Counter.builder("s3.unzip.download.retries")
+                .description("Failed downloads reopened from the last byte read")
+                .tags(tags)
+                .register(registry);
+        readAheadConsumerStall = Timer.builder("s3.unzip.readahead.consumer.stall")
+                .description("Time inflation of an archive waited for downloaded data")
+                .tags(tags)
+                .register(registry);
+        readAheadReaderStall = Timer.builder("s3.unzip.readahead.reader.stall")
+                .description("Time the download of an archive waited for a free read-ahead buffer")
+                .tags(tags)
+                .register(registry);
+        partUpload = Timer.builder("s3.unzip.part.upload")
+                .description("Latency of part upload requests")
+                .publishPercentileHistogram()
+                .tags(tags)
+                .register(registry);
+        partBytes = DistributionSummary.builder("s3.unzip.part.bytes")
+                .description("Size of uploaded parts")
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(registry);
+        partRetries = Counter.builder("s3.unzip.part.retries")
+                .description("Retries of failed part requests")
+                .tags(tags)
+                .tag("throttled", "false")
+                .register(registry);
+        partThrottledRetries = Counter.builder("s3.unzip.part.retries")
+                .description("Retries of failed part requests")
+                .tags(tags)
+                .tag("throttled", "true")
+                .register(registry);
+        putObject = Timer.builder("s3.unzip.put.object")
+                .description("Latency of PUT requests of small objects")
+                .publishPercentileHistogram()
+                .tags(tags)
+                .register(registry);
+        registry.gauge("s3.unzip.upload.queued", Tags.of(tags), queuedTasks);
+        registry.gauge("s3.unzip.upload.running", Tags.of(tags), runningTasks);
+        uploadBlocked = Timer.builder("s3.unzip.upload.blocked")
+                .description("Time blocked submitting a part to a full upload queue")
+                .tags(tags)
+                .register(registry);
+        shardBytes = DistributionSummary.builder("s3.unzip.shard.bytes")
+                .description("Size of uploaded shards")
+                .baseUnit("bytes")
+                .tags(tags)
+                .register(registry);
+    }
+
+    @Override
+    public void archiveUnzipped(String key, long compressedBytes, long nanos) {
+        archiveBytes.increment(compressedBytes);
+        archiveDuration.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void entryUnzipped(String name, long compressedBytes, long uncompressedBytes, long inflateNanos, long nanos) {
+        entryCompressedBytes.increment(compressedBytes);
+        entryUncompressedBytes.increment(uncompressedBytes);
+        entryInflate.record(inflateNanos, TimeUnit.NANOSECONDS);
+        entryDuration.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void downloadRetried(String key) {
+        downloadRetries.increment();
+    }
+
+    @Override
+    public void readAheadCompleted(String key, long consumerStallNanos, long readerStallNanos) {
+        readAheadConsumerStall.record(consumerStallNanos, TimeUnit.NANOSECONDS);
+        readAheadReaderStall.record(readerStallNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void partUploaded(long bytes, long nanos) {
+        partUpload.record(nanos, TimeUnit.NANOSECONDS);
+        partBytes.record(bytes);
+    }
+
+    @Override
+    public void partRetried(boolean throttled) {
+        (throttled ? partThrottledRetries : partRetries).increment();
+    }
+
+    @Override
+    public void objectPut(long bytes, long nanos) {
+        putObject.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void uploadQueueChanged(int queuedTasks, int runningTasks) {
+        this.queuedTasks.set(queuedTasks);
+        this.runningTasks.set(runningTasks);
+    }
+
+    @Override
+    public void uploadSubmitBlocked(long nanos) {
+        uploadBlocked.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void shardCompleted(String name, int shardNumber, long bytes) {
+        shardBytes.record(bytes);
+    }
+}
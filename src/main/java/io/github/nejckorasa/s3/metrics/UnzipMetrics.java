@@ -0,0 +1,106 @@
+package io.github.nejckorasa.s3.metrics;
+
+/**
+ * Listener of measurements of the unzip pipeline: downloading, inflating and uploading. Tells whether unzipping is bound by the network,
+ * by the CPU or by S3 throttling.
+ *
+ * <p> Measurements are reported to the listener of the {@link io.github.nejckorasa.s3.upload.S3UploadScheduler}, which is shared by all
+ * uploads of a {@link io.github.nejckorasa.s3.unzip.S3UnzipManager}. Methods are called from many threads, on the hot path, and must be
+ * thread-safe and fast. All methods do nothing by default, see {@link MicrometerUnzipMetrics} for a Micrometer binding.
+ */
+public interface UnzipMetrics {
+
+    UnzipMetrics NONE = new UnzipMetrics() {
+    };
+
+    /**
+     * An archive was unzipped
+     *
+     * @param key             key of the archive
+     * @param compressedBytes bytes of the archive downloaded
+     * @param nanos           time to unzip the archive, including all uploads
+     */
+    default void archiveUnzipped(String key, long compressedBytes, long nanos) {
+    }
+
+    /**
+     * An entry was unzipped by the strategy
+     *
+     * @param name              name of the entry
+     * @param compressedBytes   bytes of the archive read for the entry
+     * @param uncompressedBytes bytes of the entry read by the strategy
+     * @param inflateNanos      time spent reading the entry, without the time spent waiting for the download
+     * @param nanos             time to unzip the entry, uploads of its last parts may still be running
+     */
+    default void entryUnzipped(String name, long compressedBytes, long uncompressedBytes, long inflateNanos, long nanos) {
+    }
+
+    /**
+     * Reading an archive ahead of inflation on a dedicated thread finished, see {@code S3UnzipManager.withReadAheadBufferCount}
+     *
+     * @param key                key of the archive
+     * @param consumerStallNanos time inflation waited for downloaded data, long stalls mean the download is the bottleneck
+     * @param readerStallNanos   time the download waited for a free buffer, long stalls mean inflation and uploads are the bottleneck
+     */
+    default void readAheadCompleted(String key, long consumerStallNanos, long readerStallNanos) {
+    }
+
+    /**
+     * A failed download was reopened from the last byte read
+     */
+    default void downloadRetried(String key) {
+    }
+
+    /**
+     * A part was uploaded, reported for each successful attempt
+     *
+     * @param bytes size of the part
+     * @param nanos latency of the upload request
+     */
+    default void partUploaded(long bytes, long nanos) {
+    }
+
+    /**
+     * A part request failed and will be retried
+     *
+     * @param throttled true if S3 asked to reduce the request rate
+     */
+    default void partRetried(boolean throttled) {
+    }
+
+    /**
+     * An object was uploaded with a single PUT request
+     *
+     * @param bytes size of the object
+     * @param nanos latency of the request
+     */
+    default void objectPut(long bytes, long nanos) {
+    }
+
+    /**
+     * Tasks waiting and running on the upload scheduler changed
+     *
+     * @param queuedTasks  tasks waiting to run, across all uploads
+     * @param runningTasks tasks running
+     */
+    default void uploadQueueChanged(int queuedTasks, int runningTasks) {
+    }
+
+    /**
+     * Submitting a part blocked, because the upload's queue was full
+     *
+     * @param nanos time blocked
+     */
+    default void uploadSubmitBlocked(long nanos) {
+    }
+
+    /**
+     * A shard of a split entry was uploaded
+     *
+     * @param name        name of the entry
+     * @param shardNumber number of the shard, starting at 1
+     * @param bytes       size of the shard
+     */
+    default void shardCompleted(String name, int shardNumber, long bytes) {
+    }
+}
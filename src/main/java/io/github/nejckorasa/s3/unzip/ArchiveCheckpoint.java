@@ -0,0 +1,152 @@
+package io.github.nejckorasa.s3.unzip;
+
+import io.github.nejckorasa.s3.unzip.checkpoint.Checkpoint;
+import io.github.nejckorasa.s3.unzip.checkpoint.CheckpointStore;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Tracks progress of a single archive and saves it to a {@link CheckpointStore}. Without a store, nothing is tracked. Thread-safe,
+ * entries of an archive may complete in parallel.
+ *
+ * <p> Completed entries are saved at most once per save interval, by the thread completing an entry once the interval elapsed. Saves
+ * run outside the monitor guarding progress, one at a time, a thread finding a save in progress leaves its entry to the next save
+ * instead of waiting. Progress is saved in full by {@link #completed()} and {@link #failed(RuntimeException)}.
+ */
+@Slf4j
+class ArchiveCheckpoint {
+
+    private static final String UNKNOWN_ETAG = "unknown";
+
+    private final CheckpointStore checkpointStore;
+    private final String bucketName;
+    private final String key;
+    private final String eTag;
+    private final long saveIntervalNanos;
+    private final ReentrantLock saveLock = new ReentrantLock();
+    private final Set<String> completedEntries = new LinkedHashSet<>();
+    private boolean complete = false;
+    private boolean dirty = false;
+    private volatile long lastSaveNanos = System.nanoTime();
+
+    private ArchiveCheckpoint(CheckpointStore checkpointStore, String bucketName, String key, String eTag, long saveIntervalMillis) {
+        this.checkpointStore = checkpointStore;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.eTag = eTag == null ? UNKNOWN_ETAG : eTag;
+        this.saveIntervalNanos = saveIntervalMillis * 1_000_000;
+    }
+
+    /**
+     * Loads the checkpoint of an archive, a checkpoint saved for a different ETag is discarded
+     *
+     * @param checkpointStore    store to load from, or null to not track progress
+     * @param saveIntervalMillis minimum time between saves of completed entries, 0 saves after every entry
+     */
+    static ArchiveCheckpoint load(CheckpointStore checkpointStore, String bucketName, String key, String eTag, long saveIntervalMillis) {
+        var archiveCheckpoint = new ArchiveCheckpoint(checkpointStore, bucketName, key, eTag, saveIntervalMillis);
+        if (checkpointStore == null) {
+            return archiveCheckpoint;
+        }
+        checkpointStore.load(bucketName, key).ifPresent(checkpoint -> {
+            if (!archiveCheckpoint.eTag.equals(checkpoint.getETag())) {
+                log.info("Discarding checkpoint of {}, archive changed since", key);
+                return;
+            }
+            archiveCheckpoint.complete = checkpoint.isComplete();
+            archiveCheckpoint.completedEntries.addAll(checkpoint.getCompletedEntries());
+            log.info("Resuming {} from checkpoint, {} entries complete", key, checkpoint.getCompletedEntries().size());
+        });
+        return archiveCheckpoint;
+    }
+
+    synchronized boolean isComplete() {
+        return complete;
+    }
+
+    synchronized boolean isEntryComplete(String entryName) {
+        return completedEntries.contains(entryName);
+    }
+
+    void entryCompleted(String entryName) {
+        if (checkpointStore == null) {
+            return;
+        }
+        synchronized (this) {
+            if (!completedEntries.add(entryName)) {
+                return;
+            }
+            dirty = true;
+        }
+        if (System.nanoTime() - lastSaveNanos >= saveIntervalNanos && saveLock.tryLock()) {
+            try {
+                saveIfDirty();
+            } finally {
+                saveLock.unlock();
+            }
+        }
+    }
+
+    void completed() {
+        if (checkpointStore == null) {
+            return;
+        }
+        synchronized (this) {
+            complete = true;
+            dirty = true;
+        }
+        flush();
+    }
+
+    /**
+     * Saves entries completed before the archive failed, a failure to save them is suppressed by the archive's failure
+     *
+     * @return the failure of the archive
+     */
+    RuntimeException failed(RuntimeException failure) {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+        return failure;
+    }
+
+    private void flush() {
+        if (checkpointStore == null) {
+            return;
+        }
+        saveLock.lock();
+        try {
+            saveIfDirty();
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    /**
+     * Saves a snapshot of progress, called holding {@link #saveLock}
+     */
+    private void saveIfDirty() {
+        Checkpoint checkpoint;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            checkpoint = new Checkpoint(eTag, complete, new LinkedHashSet<>(completedEntries));
+            dirty = false;
+        }
+        try {
+            checkpointStore.save(bucketName, key, checkpoint);
+            lastSaveNanos = System.nanoTime();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                dirty = true;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.nejckorasa.s3.unzip;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Future of a task run on an executor. Unlike {@link CompletableFuture#cancel(boolean)}, cancelling it interrupts the thread running the
+ * task, so that a blocking task stops and cleans up, e.g. aborts its uploads.
+ */
+final class InterruptibleFuture<T> extends CompletableFuture<T> {
+
+    private Thread thread;
+
+    private InterruptibleFuture() {
+    }
+
+    /**
+     * @return future completed with the result of the task, or exceptionally if the task fails or the executor rejects it
+     */
+    static <T> InterruptibleFuture<T> submit(Supplier<T> task, Executor executor) {
+        var future = new InterruptibleFuture<T>();
+        try {
+            executor.execute(() -> future.run(task));
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void run(Supplier<T> task) {
+        synchronized (this) {
+            if (isDone()) {
+                return;
+            }
+            thread = Thread.currentThread();
+        }
+        try {
+            complete(task.get());
+        } catch (Throwable t) {
+            completeExceptionally(t);
+        } finally {
+            synchronized (this) {
+                thread = null;
+            }
+            // interrupt of a cancelled task must not leak to the next task run by the same thread
+            //noinspection ResultOfMethodCallIgnored
+            Thread.interrupted();
+        }
+    }
+
+    /**
+     * Cancels the future and interrupts the task if it is running, regardless of mayInterruptIfRunning
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        boolean cancelled = super.cancel(mayInterruptIfRunning);
+        if (cancelled) {
+            synchronized (this) {
+                if (thread != null) {
+                    thread.interrupt();
+                }
+            }
+        }
+        return cancelled;
+    }
+}
@@ -0,0 +1,85 @@
+package io.github.nejckorasa.s3.unzip;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * Counts bytes read and time spent in reads of the wrapped stream. Not thread-safe, read by a single thread at a time.
+ *
+ * <p> Reads fail with {@link InterruptedIOException} once the reading thread is interrupted, so that unzipping stops at the next read when
+ * it is cancelled, even if the wrapped stream does not respond to interrupts.
+ */
+class MeteredInputStream extends FilterInputStream {
+
+    private long bytes = 0;
+    private long nanos = 0;
+
+    MeteredInputStream(InputStream in) {
+        super(in);
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkInterrupted();
+        long start = System.nanoTime();
+        try {
+            int read = in.read();
+            if (read != -1) {
+                bytes++;
+            }
+            return read;
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkInterrupted();
+        long start = System.nanoTime();
+        try {
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                bytes += read;
+            }
+            return read;
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        checkInterrupted();
+        long start = System.nanoTime();
+        try {
+            long skipped = in.skip(n);
+            bytes += skipped;
+            return skipped;
+        } finally {
+            nanos += System.nanoTime() - start;
+        }
+    }
+
+    private static void checkInterrupted() throws InterruptedIOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Interrupted while reading");
+        }
+    }
+
+    /**
+     * @return bytes read so far
+     */
+    long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @return nanoseconds spent reading so far
+     */
+    long nanos() {
+        return nanos;
+    }
+}
@@ -0,0 +1,218 @@
+package io.github.nejckorasa.s3.unzip;
+
+import io.github.nejckorasa.s3.metrics.UnzipMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads ahead of the consumer on a dedicated thread, into a bounded ring of buffers.
+ *
+ * <p> Decouples the download from inflation, the source is read while the consumer works on previously read bytes, and the consumer
+ * reads buffered bytes while the source waits for the network. Time each side spends waiting for the other is tracked and reported to
+ * {@link UnzipMetrics#readAheadCompleted} on {@link #close()}: consumer stalls mean the download is the bottleneck, reader stalls mean the
+ * consumer is.
+ *
+ * <p> Not thread-safe, a single thread consumes the stream.
+ */
+@Slf4j
+class ReadAheadInputStream extends InputStream {
+
+    private static final AtomicInteger streamNumber = new AtomicInteger(0);
+    private static final Chunk END = new Chunk(new byte[0], -1, null);
+    private static final long CLOSE_TIMEOUT_MILLIS = 5_000;
+
+    private final InputStream source;
+    private final String name;
+    private final UnzipMetrics metrics;
+    private final BlockingQueue<byte[]> freeBuffers;
+    private final BlockingQueue<Chunk> filledChunks;
+    private final Thread reader;
+    private Chunk chunk;
+    private int chunkPosition;
+    private boolean closed = false;
+
+    private volatile long readerStallNanos = 0;
+    private long consumerStallNanos = 0;
+    private long bytesRead = 0;
+
+    /**
+     * @param source      stream to read ahead of
+     * @param name        name used in logs
+     * @param bufferCount number of buffers in the ring
+     * @param bufferSize  size of a single buffer, in bytes
+     * @param metrics     listener stall times are reported to on close
+     */
+    ReadAheadInputStream(InputStream source, String name, int bufferCount, int bufferSize, UnzipMetrics metrics) {
+        this.source = source;
+        this.name = name;
+        this.metrics = metrics;
+        this.freeBuffers = new ArrayBlockingQueue<>(bufferCount);
+        this.filledChunks = new ArrayBlockingQueue<>(bufferCount + 1);
+        for (int i = 0; i < bufferCount; i++) {
+            freeBuffers.add(new byte[bufferSize]);
+        }
+        this.reader = new Thread(this::readAhead, "s3-read-ahead-" + streamNumber.incrementAndGet());
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextChunk()) {
+            return -1;
+        }
+        bytesRead++;
+        return chunk.bytes[chunkPosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!nextChunk()) {
+            return -1;
+        }
+        int n = Math.min(len, chunk.length - chunkPosition);
+        System.arraycopy(chunk.bytes, chunkPosition, b, off, n);
+        chunkPosition += n;
+        bytesRead += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return chunk == null || chunk == END ? 0 : chunk.length - chunkPosition;
+    }
+
+    /**
+     * Stops reading ahead and closes the source. A reader still running may be blocked reading the source, an S3 download is aborted
+     * first to unblock it, instead of waiting for the socket timeout. The reader is then awaited for at most
+     * {@link #CLOSE_TIMEOUT_MILLIS}.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (reader.isAlive() && source instanceof ResumableS3InputStream) {
+                ((ResumableS3InputStream) source).abort();
+            } else {
+                source.close();
+            }
+        } finally {
+            reader.interrupt();
+            try {
+                reader.join(CLOSE_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (reader.isAlive()) {
+                log.warn("Reader of {} did not stop within {} ms of closing", name, CLOSE_TIMEOUT_MILLIS);
+            }
+        }
+        log.debug("Read ahead of {} consumed {} bytes, consumer waited {} ms for data, reader waited {} ms for buffers",
+                name, bytesRead, consumerStallNanos / 1_000_000, readerStallNanos / 1_000_000);
+        metrics.readAheadCompleted(name, consumerStallNanos, readerStallNanos);
+    }
+
+    /**
+     * @return total time the consumer waited for the source, in nanoseconds
+     */
+    long getConsumerStallNanos() {
+        return consumerStallNanos;
+    }
+
+    /**
+     * @return total time the reader waited for the consumer to free a buffer, in nanoseconds
+     */
+    long getReaderStallNanos() {
+        return readerStallNanos;
+    }
+
+    /**
+     * Makes sure the current chunk has unread bytes, takes the next filled chunk if needed
+     *
+     * @return false at the end of the source
+     */
+    private boolean nextChunk() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (chunk == END) {
+            return false;
+        }
+        if (chunk != null && chunkPosition < chunk.length) {
+            return true;
+        }
+        if (chunk != null) {
+            freeBuffers.add(chunk.bytes);
+        }
+
+        long start = System.nanoTime();
+        try {
+            chunk = filledChunks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + name);
+        } finally {
+            consumerStallNanos += System.nanoTime() - start;
+        }
+        chunkPosition = 0;
+
+        if (chunk.failure != null) {
+            var failure = chunk.failure;
+            chunk = END;
+            throw new IOException("Failed reading " + name, failure);
+        }
+        return chunk != END;
+    }
+
+    private void readAhead() {
+        try {
+            while (true) {
+                long start = System.nanoTime();
+                byte[] buffer = freeBuffers.take();
+                readerStallNanos += System.nanoTime() - start;
+
+                int length = 0;
+                int n = 0;
+                while (length < buffer.length && (n = source.read(buffer, length, buffer.length - length)) != -1) {
+                    length += n;
+                }
+                if (length > 0) {
+                    filledChunks.put(new Chunk(buffer, length, null));
+                }
+                if (n == -1) {
+                    filledChunks.put(END);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            log.debug("Stopped reading ahead of {}", name);
+        } catch (IOException | RuntimeException e) {
+            // queue has room for one more chunk than there are buffers, so the failure is always delivered
+            filledChunks.offer(new Chunk(new byte[0], 0, e));
+        }
+    }
+
+    private static final class Chunk {
+        private final byte[] bytes;
+        private final int length;
+        private final Exception failure;
+
+        private Chunk(byte[] bytes, int length, Exception failure) {
+            this.bytes = bytes;
+            this.length = length;
+            this.failure = failure;
+        }
+    }
+}
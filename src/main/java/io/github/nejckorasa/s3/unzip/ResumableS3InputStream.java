@@ -0,0 +1,205 @@
+package io.github.nejckorasa.s3.unzip;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import io.github.nejckorasa.s3.client.S3Operations;
+import io.github.nejckorasa.s3.metrics.UnzipMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.List;
+
+/**
+ * Reads an object, or a range of it, and reconnects when the download fails part way.
+ *
+ * <p> Tracks the offset of the next byte, on a transient failure the current request is aborted and the object is requested again
+ * with a ranged GET from that offset, after an exponential backoff. The consumer only sees the failure once {@code retryCount}
+ * consecutive attempts fail, each reopen is reported to {@link UnzipMetrics#downloadRetried(String)}. Reopened requests are bound to the ETag of the first response, so a changed object fails the stream
+ * rather than mixing versions.
+ *
+ * <p> The request is only opened on the first read.
+ */
+@Slf4j
+class ResumableS3InputStream extends InputStream {
+
+    private static final long MAX_BACKOFF_MILLIS = 20_000;
+
+    private final S3Operations s3Client;
+    private final String bucketName;
+    private final String key;
+    private final long lastByte;
+    private final int retryCount;
+    private final long retryBackoffMillis;
+    private final UnzipMetrics metrics;
+
+    private volatile S3ObjectInputStream objectInputStream;
+    private String eTag;
+    private long position;
+    private long endPosition;
+    private int attempts = 0;
+    private boolean endOfStream = false;
+    private volatile boolean closed = false;
+
+    /**
+     * Reads the content of an object that is already open, from its first byte
+     */
+    ResumableS3InputStream(S3Operations s3Client, S3Object s3Object, int retryCount, long retryBackoffMillis, UnzipMetrics metrics) {
+        this(s3Client, s3Object.getBucketName(), s3Object.getKey(), 0, -1, retryCount, retryBackoffMillis, metrics);
+        opened(s3Object);
+    }
+
+    /**
+     * @param firstByte first byte to read
+     * @param lastByte  last byte to read, inclusive, or -1 to read to the end of the object
+     */
+    ResumableS3InputStream(S3Operations s3Client, String bucketName, String key, long firstByte, long lastByte,
+                           int retryCount, long retryBackoffMillis, UnzipMetrics metrics) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.position = firstByte;
+        this.lastByte = lastByte;
+        this.retryCount = retryCount;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int n = read(b, 0, 1);
+        return n == -1 ? -1 : b[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (endOfStream) {
+            return -1;
+        }
+        while (true) {
+            try {
+                open();
+                int n = objectInputStream.read(b, off, len);
+                if (n == -1) {
+                    if (position < endPosition) {
+                        throw new EOFException("Premature end of " + key + " at byte " + position + ", expected " + endPosition + " bytes");
+                    }
+                    endOfStream = true;
+                } else if (n > 0) {
+                    position += n;
+                    attempts = 0;
+                }
+                return n;
+            } catch (IOException | SdkClientException e) {
+                retryOrThrow(e);
+            }
+        }
+    }
+
+    /**
+     * Aborts the current request instead of draining it, may be called while another thread reads the stream, which then fails without
+     * reopening it
+     */
+    void abort() {
+        closed = true;
+        var inputStream = objectInputStream;
+        if (inputStream != null) {
+            inputStream.abort();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (objectInputStream != null) {
+            objectInputStream.close();
+        }
+    }
+
+    /**
+     * @return offset of the next byte in the object
+     */
+    long getPosition() {
+        return position;
+    }
+
+    private void open() throws IOException {
+        if (objectInputStream != null) {
+            return;
+        }
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        var request = new GetObjectRequest(bucketName, key);
+        if (lastByte >= 0) {
+            request.setRange(position, lastByte);
+        } else if (position > 0) {
+            request.setRange(position);
+        }
+        if (eTag != null) {
+            request.setMatchingETagConstraints(List.of(eTag));
+        }
+        var s3Object = s3Client.getObject(request);
+        if (s3Object == null) {
+            throw new S3UnzipException("Object " + key + " changed while it was read, ETag does not match " + eTag);
+        }
+        opened(s3Object);
+    }
+
+    private void opened(S3Object s3Object) {
+        objectInputStream = s3Object.getObjectContent();
+        endPosition = position + s3Object.getObjectMetadata().getContentLength();
+        if (eTag == null) {
+            eTag = s3Object.getObjectMetadata().getETag();
+        }
+    }
+
+    private void retryOrThrow(Exception e) throws IOException {
+        if (objectInputStream != null) {
+            objectInputStream.abort();
+            objectInputStream = null;
+        }
+        if (closed || !isRetryable(e) || attempts >= retryCount) {
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            throw (RuntimeException) e;
+        }
+        attempts++;
+        metrics.downloadRetried(key);
+        long backoffMillis = Math.min(MAX_BACKOFF_MILLIS, retryBackoffMillis << Math.min(attempts - 1, 20));
+        log.warn("Reading {} failed at byte {}, reopening in {} ms, attempt {} of {}", key, position, backoffMillis, attempts, retryCount, e);
+        try {
+            Thread.sleep(backoffMillis);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to reopen " + key);
+        }
+    }
+
+    private static boolean isRetryable(Exception e) {
+        if (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)) {
+            return false;
+        }
+        if (e instanceof AmazonServiceException) {
+            return ((AmazonServiceException) e).getStatusCode() >= 500;
+        }
+        return true;
+    }
+}
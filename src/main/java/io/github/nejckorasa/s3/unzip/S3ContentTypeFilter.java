@@ -0,0 +1,123 @@
+package io.github.nejckorasa.s3.unzip;
+
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import io.github.nejckorasa.s3.client.S3Operations;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+/**
+ * Filters listed objects by content type, read with HEAD requests instead of opening object content.
+ *
+ * <p> Up to {@code concurrency} HEAD requests run ahead of iteration, so metadata of the next objects is read while the current one is
+ * processed. Objects are returned in listing order. Objects whose HEAD request fails, e.g. deleted after they were listed, are skipped
+ * and reported to {@code onFailure}. Not thread-safe, close to cancel requests when not iterated to the end.
+ */
+@Slf4j
+class S3ContentTypeFilter implements Iterator<S3ObjectSummary>, AutoCloseable {
+
+    private final S3Operations s3Client;
+    private final Iterator<S3ObjectSummary> objectSummaries;
+    private final List<String> contentTypes;
+    private final int concurrency;
+    private final BiConsumer<String, Exception> onFailure;
+    private final ArrayDeque<PendingHead> pendingHeads = new ArrayDeque<>();
+    private final ExecutorService executorService;
+    private S3ObjectSummary next;
+
+    /**
+     * @param onFailure called with the key and failure of each object whose metadata cannot be read
+     */
+    S3ContentTypeFilter(S3Operations s3Client, Iterator<S3ObjectSummary> objectSummaries, List<String> contentTypes, int concurrency,
+                        BiConsumer<String, Exception> onFailure) {
+        this.s3Client = s3Client;
+        this.objectSummaries = objectSummaries;
+        this.contentTypes = contentTypes;
+        this.concurrency = concurrency;
+        this.onFailure = onFailure;
+        this.executorService = Executors.newFixedThreadPool(concurrency, runnable -> {
+            var thread = new Thread(runnable, "s3-head");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null) {
+            fillPendingHeads();
+            if (pendingHeads.isEmpty()) {
+                return false;
+            }
+            var pendingHead = pendingHeads.poll();
+            String contentType;
+            try {
+                contentType = contentType(pendingHead);
+            } catch (ExecutionException e) {
+                var key = pendingHead.objectSummary.getKey();
+                onFailure.accept(key, new S3UnzipException("Failed reading metadata of " + key, e.getCause()));
+                continue;
+            }
+            if (contentTypes.contains(contentType)) {
+                log.debug("Found zip s3Object: {}", pendingHead.objectSummary.getKey());
+                next = pendingHead.objectSummary;
+            } else {
+                log.debug("Skipping s3Object: {} - content type {} does not match any of {}",
+                        pendingHead.objectSummary.getKey(), contentType, contentTypes);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public S3ObjectSummary next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        var objectSummary = next;
+        next = null;
+        return objectSummary;
+    }
+
+    @Override
+    public void close() {
+        pendingHeads.forEach(pendingHead -> pendingHead.metadata.cancel(true));
+        pendingHeads.clear();
+        executorService.shutdownNow();
+    }
+
+    private void fillPendingHeads() {
+        while (pendingHeads.size() < concurrency && objectSummaries.hasNext()) {
+            var objectSummary = objectSummaries.next();
+            var metadata = executorService.submit(() -> s3Client.getObjectMetadata(
+                    new GetObjectMetadataRequest(objectSummary.getBucketName(), objectSummary.getKey())));
+            pendingHeads.add(new PendingHead(objectSummary, metadata));
+        }
+    }
+
+    private String contentType(PendingHead pendingHead) throws ExecutionException {
+        try {
+            return pendingHead.metadata.get().getContentType();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new S3UnzipException("Interrupted while reading metadata of " + pendingHead.objectSummary.getKey(), e);
+        }
+    }
+
+    @Value
+    private static class PendingHead {
+        S3ObjectSummary objectSummary;
+        Future<ObjectMetadata> metadata;
+    }
+}
@@ -0,0 +1,113 @@
+package io.github.nejckorasa.s3.unzip;
+
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+import io.github.nejckorasa.s3.client.S3Operations;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+
+/**
+ * Lazy listing of objects under a prefix, follows ListObjectsV2 continuation tokens page by page.
+ *
+ * <p> The next page is requested in the background as soon as the current one is received, so listing overlaps with processing of
+ * listed objects. Only keys accepted by the key filter are returned. Not thread-safe, close to stop prefetching when not iterated to
+ * the end.
+ */
+@Slf4j
+class S3ObjectListing implements Iterator<S3ObjectSummary>, AutoCloseable {
+
+    static final int DEFAULT_PAGE_SIZE = 1000;
+
+    private final S3Operations s3Client;
+    private final String bucketName;
+    private final String prefix;
+    private final Predicate<String> keyFilter;
+    private final int pageSize;
+    private final ArrayDeque<S3ObjectSummary> summaries = new ArrayDeque<>();
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "s3-listing");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private CompletableFuture<ListObjectsV2Result> nextPage;
+    private int pageCount = 0;
+
+    S3ObjectListing(S3Operations s3Client, String bucketName, String prefix, Predicate<String> keyFilter, int pageSize) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.prefix = prefix;
+        this.keyFilter = keyFilter;
+        this.pageSize = pageSize;
+        this.nextPage = fetchPage(null);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (summaries.isEmpty() && nextPage != null) {
+            receivePage();
+        }
+        return !summaries.isEmpty();
+    }
+
+    @Override
+    public S3ObjectSummary next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return summaries.poll();
+    }
+
+    /**
+     * Stops prefetching, pages not received yet are discarded
+     */
+    @Override
+    public void close() {
+        nextPage = null;
+        executorService.shutdownNow();
+    }
+
+    private void receivePage() {
+        ListObjectsV2Result page;
+        try {
+            page = nextPage.join();
+        } catch (CompletionException e) {
+            close();
+            throw new S3UnzipException("Failed listing objects in " + bucketName + "/" + prefix, e.getCause());
+        }
+        pageCount++;
+
+        if (page.isTruncated() && page.getNextContinuationToken() != null) {
+            nextPage = fetchPage(page.getNextContinuationToken());
+        } else {
+            if (page.isTruncated()) {
+                log.warn("Listing of {}/{} is truncated without a continuation token, stopping at page {}", bucketName, prefix, pageCount);
+            }
+            close();
+        }
+
+        for (var summary : page.getObjectSummaries()) {
+            if (keyFilter.test(summary.getKey())) {
+                summaries.add(summary);
+            }
+        }
+        log.debug("Listed page {} of {}/{}: {} objects, {} accepted", pageCount, bucketName, prefix, page.getKeyCount(), summaries.size());
+    }
+
+    private CompletableFuture<ListObjectsV2Result> fetchPage(String continuationToken) {
+        var request = new ListObjectsV2Request()
+                .withBucketName(bucketName)
+                .withPrefix(prefix)
+                .withMaxKeys(pageSize)
+                .withContinuationToken(continuationToken);
+        return CompletableFuture.supplyAsync(() -> s3Client.listObjectsV2(request), executorService);
+    }
+}
@@ -1,10 +1,21 @@
 package io.github.nejckorasa.s3.unzip;
 
 import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
+import io.github.nejckorasa.s3.client.S3Operations;
+import io.github.nejckorasa.s3.jfr.ArchiveExtractedEvent;
+import io.github.nejckorasa.s3.jfr.EntryInflatedEvent;
+import io.github.nejckorasa.s3.unzip.checkpoint.CheckpointStore;
 import io.github.nejckorasa.s3.unzip.strategy.UnzipStrategy;
+import io.github.nejckorasa.s3.upload.AsyncPutObjects;
+import io.github.nejckorasa.s3.upload.MemoryBudget;
+import io.github.nejckorasa.s3.upload.PartBufferPool;
+import io.github.nejckorasa.s3.upload.S3MultipartUploadException;
+import io.github.nejckorasa.s3.upload.S3UploadScheduler;
+import io.github.nejckorasa.s3.upload.VirtualThreads;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.NonNull;
@@ -12,12 +23,27 @@ import lombok.With;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
 import java.util.zip.ZipInputStream;
 
-import static java.lang.System.currentTimeMillis;
-import static java.util.stream.Collectors.joining;
+import static com.amazonaws.services.s3.internal.Constants.MB;
 
 /**
  * Utility for managing unzipping of objects in Amazon S3.
@@ -25,58 +51,382 @@ import static java.util.stream.Collectors.joining;
  * Manages unzipping of data in AWS S3 utilizing stream download and multipart upload. Unzipping is achieved without knowing the size beforehand and without keeping it all in memory or writing to disk.
  * <p>
  * Supports different unzip strategies, see {@link UnzipStrategy}
+ * <p>
+ * Archives are read as a single stream by default. Set {@link #randomAccess} to read the central directory first and extract entries in parallel,
+ * each through its own ranged GET request.
+ * <p>
+ * Part uploads of all strategies run on a single {@link S3UploadScheduler}, owned by the manager and shut down with {@link #close()}.
+ * Part data is buffered in a bounded {@link PartBufferPool}, which caps memory used by all uploads of the manager.
+ * <p>
+ * Bytes downloaded and inflated, inflate time and download retries are reported to the
+ * {@link io.github.nejckorasa.s3.metrics.UnzipMetrics} of the {@link #uploadScheduler}, along with measurements of the uploads.
+ * Unzipped archives and entries are recorded with JDK Flight Recorder events, see {@link ArchiveExtractedEvent}.
+ * <p>
+ * {@code *Async} methods return a {@link CompletableFuture} instead of blocking the caller, see {@link #asyncExecutor}. Cancelling the
+ * future interrupts unzipping, which aborts its in-flight multipart uploads.
+ * <p>
+ * On JDK 21 archives, entries and part uploads can run on virtual threads, see {@link #virtualThreads}.
  */
 @Slf4j
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
-public class S3UnzipManager {
+public class S3UnzipManager implements AutoCloseable {
+
+    public static final long DEFAULT_PART_BUFFER_POOL_BYTES = 400L * MB;
+
+    private static final AtomicInteger asyncThreadNumber = new AtomicInteger(0);
+
+    private static final Executor NEW_THREAD_EXECUTOR = runnable -> {
+        var thread = new Thread(runnable, "s3-unzip-async-" + asyncThreadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    };
+
+    private static final Executor VIRTUAL_THREAD_EXECUTOR = VirtualThreads.newThreadPerTaskExecutor("s3-unzip-async-");
 
     @NonNull
     private final UnzipStrategy unzipStrategy;
 
     @NonNull
-    private final AmazonS3 s3Client;
+    private final S3Operations s3Client;
 
     @With
     private List<String> contentTypes = null;
 
+    /**
+     * Read the central directory at the end of the archive and extract entries independently with ranged GET requests, instead of reading
+     * the whole archive as a single stream. Defaults to false.
+     * <p>
+     * Unzip strategy must be safe to use from multiple threads, which is true for provided strategies.
+     */
+    @With
+    private boolean randomAccess = false;
+
+    /**
+     * Number of entries extracted in parallel when {@link #randomAccess} is enabled
+     */
+    @With
+    private int entryThreadCount = 4;
+
+    /**
+     * Number of buffers the archive is read ahead into on a dedicated thread, so that the download and inflation do not wait for each
+     * other. Defaults to 0, which reads the archive on the inflating thread. Applies unless {@link #randomAccess} is enabled.
+     */
+    @With
+    private int readAheadBufferCount = 0;
+
+    /**
+     * Size of a single read-ahead buffer, in bytes
+     */
+    @With
+    private int readAheadBufferSize = MB;
+
+    /**
+     * Number of times a failed archive download is reopened from the last byte read, with a ranged GET request, before unzipping fails.
+     * Attempts are counted from the last successful read.
+     */
+    @With
+    private int downloadRetryCount = 5;
+
+    /**
+     * Backoff before the first reopen of a failed download, doubled with each further attempt
+     */
+    @With
+    private long downloadRetryBackoffMillis = 500;
+
+    /**
+     * Maximum capacity of part buffers of small entries uploading in the background while the archive is read on, set to 0 to upload
+     * each entry before the next one is read. Buffers are held until uploaded, within the {@link #partBufferPool}. Applies to strategies
+     * uploading entries with a single request, unless {@link #randomAccess} is enabled. All uploads are awaited before the archive is
+     * complete, entries with duplicate names are uploaded in order, the last one is kept.
+     */
+    @With
+    private long asyncPutObjectBytes = 32 * MB;
+
+    /**
+     * Store of checkpoints, when set progress of each archive is saved as entries complete, see {@link #checkpointSaveIntervalMillis}.
+     * Archives and entries completed by a previous run are skipped, as long as the archive's ETag did not change. Defaults to null, no
+     * checkpoints.
+     * <p>
+     * Progress is tracked by whole entries. An entry split into multiple objects, e.g. by {@code SplitTextUnzipStrategy}, is unzipped
+     * again in full by the next run unless it completed, overwriting objects of shards uploaded before the failure.
+     */
+    @With
+    private CheckpointStore checkpointStore = null;
+
+    /**
+     * Minimum time between saves of an archive's checkpoint while its entries complete, set to 0 to save after every entry. Progress is
+     * always saved when the archive completes or fails, a job dying in between unzips entries completed since the last save again.
+     */
+    @With
+    private long checkpointSaveIntervalMillis = 1000;
+
+    /**
+     * Number of archives unzipped in parallel by {@code unzipObjects*}, each archive is unzipped by a single thread unless
+     * {@link #randomAccess} is enabled. Defaults to 1.
+     */
+    @With
+    private int archiveThreadCount = 1;
+
+    /**
+     * Number of HEAD requests run ahead of unzipping to filter listed objects by {@link #contentTypes}, object content is only opened
+     * for archives that are unzipped. A failed HEAD request is reported as a failure of its object, other objects are still unzipped.
+     */
+    @With
+    private int metadataThreadCount = 4;
+
+    /**
+     * Maximum number of keys listed with a single request by {@code unzipObjects*}, pages are listed lazily while objects are unzipped
+     */
+    @With
+    private int listPageSize = S3ObjectListing.DEFAULT_PAGE_SIZE;
+
+    /**
+     * Executor running {@code *Async} calls, each call blocks a single thread of it while archives of a batch are unzipped as configured
+     * by {@link #archiveThreadCount}. Defaults to null, which runs each call on a new daemon thread.
+     */
+    @With
+    private Executor asyncExecutor = null;
+
+    /**
+     * Run archives of {@code unzipObjects*}, entries extracted with {@link #randomAccess} and {@code *Async} calls without an
+     * {@link #asyncExecutor} on virtual threads, a new one for each task. Their concurrency is still limited by
+     * {@link #archiveThreadCount} and {@link #entryThreadCount}, with semaphores. Requires JDK 21, see {@link VirtualThreads}.
+     * Defaults to false.
+     * <p>
+     * Part uploads run on virtual threads with an upload scheduler created by {@link S3UploadScheduler#virtualThreads}.
+     */
+    @With
+    private boolean virtualThreads = false;
+
+    /**
+     * Scheduler running part uploads of all strategies, defaults to a scheduler with {@link S3UploadScheduler#DEFAULT_THREAD_COUNT} threads.
+     * Shared between managers created with {@code with*} methods.
+     */
+    @NonNull
+    @With
+    private S3UploadScheduler uploadScheduler;
+
+    /**
+     * Pool of part buffers used by all strategies, defaults to a heap pool of {@link #DEFAULT_PART_BUFFER_POOL_BYTES}.
+     * Shared between managers created with {@code with*} methods. Trimmed once each unzip call finishes, free buffers are released to
+     * its {@link MemoryBudget}.
+     */
+    @NonNull
+    @With
+    private PartBufferPool partBufferPool;
+
     public S3UnzipManager(@NonNull AmazonS3 s3Client, @NonNull UnzipStrategy unzipStrategy) {
+        this(S3Operations.of(s3Client), unzipStrategy);
+    }
+
+    /**
+     * @param s3Client S3 operations of any client, e.g. of the SDK v2 {@code S3AsyncClient}, see {@link S3Operations}
+     * @throws UnsupportedOperationException if the strategy does not unzip with the client, see {@link UnzipStrategy#supports(S3Operations)}
+     */
+    public S3UnzipManager(@NonNull S3Operations s3Client, @NonNull UnzipStrategy unzipStrategy) {
+        if (!unzipStrategy.supports(s3Client)) {
+            throw new UnsupportedOperationException(unzipStrategy.getClass().getName() + " only unzips with AmazonS3, override "
+                    + "unzip(S3ZipFile, S3Operations) to unzip with " + s3Client.getClass().getName());
+        }
         this.s3Client = s3Client;
         this.unzipStrategy = unzipStrategy;
+        this.uploadScheduler = new S3UploadScheduler();
+        this.partBufferPool = new PartBufferPool(DEFAULT_PART_BUFFER_POOL_BYTES, false);
     }
 
     public void unzipObject(S3Object s3Object, String outputPrefix) {
-        unzip(s3Object, outputPrefix);
+        if (!hasValidContentType(s3Object.getObjectMetadata())) {
+            throw new S3UnzipException("s3Object has invalid type: " + s3Object.getObjectMetadata().getContentType());
+        }
+
+        var checkpoint = ArchiveCheckpoint.load(checkpointStore, s3Object.getBucketName(), s3Object.getKey(), s3Object.getObjectMetadata().getETag(),
+                checkpointSaveIntervalMillis);
+        if (checkpoint.isComplete()) {
+            log.info("Skipping {}, already unzipped", s3Object.getKey());
+            s3Object.getObjectContent().abort();
+            return;
+        }
+
+        try {
+            if (randomAccess) {
+                s3Object.getObjectContent().abort();
+                unzipRandomAccess(s3Object.getBucketName(), s3Object.getKey(), s3Object.getObjectMetadata().getInstanceLength(), outputPrefix,
+                        checkpoint);
+            } else {
+                var content = new ResumableS3InputStream(s3Client, s3Object, downloadRetryCount, downloadRetryBackoffMillis,
+                        uploadScheduler.getMetrics());
+                unzipStream(s3Object.getBucketName(), s3Object.getKey(), content, outputPrefix, checkpoint);
+            }
+        } catch (RuntimeException e) {
+            throw checkpoint.failed(e);
+        } finally {
+            partBufferPool.trim();
+        }
+        checkpoint.completed();
+        logUnzipped(s3Object.getKey());
     }
 
-    public void unzipObjects(String bucketName, String inputPrefix, String outputPrefix) {
-        findObjectSummaries(bucketName, inputPrefix)
-                .forEach(objSum -> getObjectIfZip(bucketName, objSum).ifPresent(obj -> unzip(obj, outputPrefix)));
+    /**
+     * Unzips an object on the {@link #asyncExecutor}, its metadata is read with a HEAD request first
+     *
+     * @return future of the result of the single archive, a failure to unzip it is reported in the result
+     */
+    public CompletableFuture<UnzipResult> unzipObjectAsync(String bucketName, String key, String outputPrefix) {
+        return supplyAsync(() -> {
+            try {
+                var metadata = s3Client.getObjectMetadata(new GetObjectMetadataRequest(bucketName, key));
+                if (!hasValidContentType(metadata)) {
+                    throw new S3UnzipException("s3Object has invalid type: " + metadata.getContentType());
+                }
+                unzipListedObject(bucketName, key, metadata.getETag(), metadata.getContentLength(), outputPrefix);
+                return new UnzipResult(List.of(key), List.of());
+            } catch (Exception e) {
+                log.error("Failed to unzip {}", key, e);
+                return new UnzipResult(List.of(), List.of(new UnzipResult.Failure(key, e)));
+            } finally {
+                partBufferPool.trim();
+            }
+        });
     }
 
-    public void unzipObjectsKeyContaining(String bucketName, String inputPrefix, String outputPrefix, String keyContaining) {
-        findObjectSummaries(bucketName, inputPrefix).stream()
-                .filter(objSum -> objSum.getKey().contains(keyContaining))
-                .forEach(objSum -> getObjectIfZip(bucketName, objSum).ifPresent(obj -> unzip(obj, outputPrefix)));
+    /**
+     * Unzips objects like {@link #unzipObjects(String, String, String)}, on the {@link #asyncExecutor}
+     */
+    public CompletableFuture<UnzipResult> unzipObjectsAsync(String bucketName, String inputPrefix, String outputPrefix) {
+        return unzipObjectsAsync(bucketName, inputPrefix, outputPrefix, key -> true);
     }
 
-    public void unzipObjectsKeyMatching(String bucketName, String inputPrefix, String outputPrefix, String keyMatching) {
-        findObjectSummaries(bucketName, inputPrefix).stream()
-                .filter(objSum -> objSum.getKey().matches(keyMatching))
-                .forEach(objSum -> getObjectIfZip(bucketName, objSum).ifPresent(obj -> unzip(obj, outputPrefix)));
+    /**
+     * Unzips objects with keys accepted by the filter, on the {@link #asyncExecutor}
+     */
+    public CompletableFuture<UnzipResult> unzipObjectsAsync(String bucketName, String inputPrefix, String outputPrefix, Predicate<String> keyFilter) {
+        return supplyAsync(() -> unzipObjects(bucketName, inputPrefix, outputPrefix, keyFilter));
     }
 
-    private void unzip(S3Object s3Object, String outputPrefix) {
-        if (!hasValidContentType(s3Object)) {
-            throw new S3UnzipException("s3Object has invalid type: " + s3Object.getObjectMetadata().getContentType());
+    private <T> CompletableFuture<T> supplyAsync(Supplier<T> task) {
+        if (asyncExecutor != null) {
+            return InterruptibleFuture.submit(task, asyncExecutor);
+        }
+        return InterruptibleFuture.submit(task, virtualThreads ? VIRTUAL_THREAD_EXECUTOR : NEW_THREAD_EXECUTOR);
+    }
+
+    public UnzipResult unzipObjects(String bucketName, String inputPrefix, String outputPrefix) {
+        return unzipObjects(bucketName, inputPrefix, outputPrefix, key -> true);
+    }
+
+    public UnzipResult unzipObjectsKeyContaining(String bucketName, String inputPrefix, String outputPrefix, String keyContaining) {
+        return unzipObjects(bucketName, inputPrefix, outputPrefix, key -> key.contains(keyContaining));
+    }
+
+    public UnzipResult unzipObjectsKeyMatching(String bucketName, String inputPrefix, String outputPrefix, String keyMatching) {
+        var pattern = Pattern.compile(keyMatching);
+        return unzipObjects(bucketName, inputPrefix, outputPrefix, key -> pattern.matcher(key).matches());
+    }
+
+    private UnzipResult unzipObjects(String bucketName, String inputPrefix, String outputPrefix, Predicate<String> keyFilter) {
+        List<String> unzippedKeys = Collections.synchronizedList(new ArrayList<>());
+        List<UnzipResult.Failure> failures = Collections.synchronizedList(new ArrayList<>());
+
+        BiConsumer<String, Exception> headFailed = (key, e) -> {
+            log.error("Failed to unzip {}, reading its metadata failed", key, e);
+            failures.add(new UnzipResult.Failure(key, e));
+        };
+
+        // permits bound archives in progress, so that listing does not run ahead of unzipping
+        var permits = new Semaphore(archiveThreadCount);
+        var executorService = newExecutor(archiveThreadCount, "s3-unzip-archive-");
+        try (var listing = new S3ObjectListing(s3Client, bucketName, inputPrefix, keyFilter, listPageSize);
+             var archives = hasContentTypes() ? new S3ContentTypeFilter(s3Client, listing, contentTypes, metadataThreadCount, headFailed) : null) {
+            Iterator<S3ObjectSummary> objectSummaries = archives != null ? archives : listing;
+            while (objectSummaries.hasNext()) {
+                var objectSummary = objectSummaries.next();
+                permits.acquire();
+                executorService.execute(() -> {
+                    try {
+                        unzipListedObject(bucketName, objectSummary.getKey(), objectSummary.getETag(), objectSummary.getSize(), outputPrefix);
+                        unzippedKeys.add(objectSummary.getKey());
+                    } catch (Exception e) {
+                        log.error("Failed to unzip {}", objectSummary.getKey(), e);
+                        failures.add(new UnzipResult.Failure(objectSummary.getKey(), e));
+                    } finally {
+                        permits.release();
+                    }
+                });
+            }
+            permits.acquire(archiveThreadCount);
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new S3UnzipException("Interrupted while unzipping objects in " + bucketName + "/" + inputPrefix, e);
+        } catch (RuntimeException e) {
+            // listing failed, archives already submitted complete before the failure is reported
+            awaitArchives(permits, executorService, e);
+            log.error("Failed listing objects in {}/{}, unzipped {} objects, {} failed",
+                    bucketName, inputPrefix, unzippedKeys.size(), failures.size());
+            throw e;
+        } finally {
+            executorService.shutdown();
+            partBufferPool.trim();
         }
 
-        if (!outputPrefix.endsWith("/")) {
-            outputPrefix += "/";
+        log.info("Unzipped {} objects in {}/{}, {} failed", unzippedKeys.size(), bucketName, inputPrefix, failures.size());
+        return new UnzipResult(List.copyOf(unzippedKeys), List.copyOf(failures));
+    }
+
+    private void awaitArchives(Semaphore permits, ExecutorService executorService, RuntimeException failure) {
+        try {
+            permits.acquire(archiveThreadCount);
+        } catch (InterruptedException e) {
+            executorService.shutdownNow();
+            Thread.currentThread().interrupt();
+            failure.addSuppressed(e);
         }
+    }
 
-        String bucketName = s3Object.getBucketName();
+    /**
+     * Unzips an object found by listing or a HEAD request, its content is only opened here, random access reads just the central
+     * directory and entries
+     */
+    private void unzipListedObject(String bucketName, String key, String eTag, long size, String outputPrefix) {
+        var checkpoint = ArchiveCheckpoint.load(checkpointStore, bucketName, key, eTag, checkpointSaveIntervalMillis);
+        if (checkpoint.isComplete()) {
+            log.info("Skipping {}, already unzipped", key);
+            return;
+        }
 
-        try (var zipInputStream = new ZipInputStream(s3Object.getObjectContent())) {
+        try {
+            if (randomAccess) {
+                unzipRandomAccess(bucketName, key, size, outputPrefix, checkpoint);
+            } else {
+                var content = new ResumableS3InputStream(s3Client, bucketName, key, 0, -1, downloadRetryCount, downloadRetryBackoffMillis,
+                        uploadScheduler.getMetrics());
+                unzipStream(bucketName, key, content, outputPrefix, checkpoint);
+            }
+        } catch (RuntimeException e) {
+            throw checkpoint.failed(e);
+        }
+        checkpoint.completed();
+        logUnzipped(key);
+    }
+
+    private void logUnzipped(String key) {
+        log.debug("Unzipped {}, part buffers: {} bytes allocated, memory budget: {}",
+                key, partBufferPool.getAllocatedBytes(), partBufferPool.getMemoryBudget());
+    }
+
+    private void unzipStream(String bucketName, String key, InputStream content, String outputPrefix, ArchiveCheckpoint checkpoint) {
+        var archiveEvent = new ArchiveExtractedEvent();
+        archiveEvent.begin();
+        long archiveStart = System.nanoTime();
+        int entryCount = 0;
+        outputPrefix = normalizePrefix(outputPrefix);
+        if (readAheadBufferCount > 0) {
+            content = new ReadAheadInputStream(content, key, readAheadBufferCount, readAheadBufferSize, uploadScheduler.getMetrics());
+        }
+        var compressedInputStream = new MeteredInputStream(content);
+
+        var asyncPutObjects = asyncPutObjectBytes > 0 ? new AsyncPutObjects(uploadScheduler, asyncPutObjectBytes) : null;
+        try (var zipInputStream = new ZipInputStream(compressedInputStream)) {
             var zipEntry = zipInputStream.getNextEntry();
             while (zipEntry != null) {
                 if (zipEntry.isDirectory()) {
@@ -84,41 +434,204 @@ public class S3UnzipManager {
                     zipEntry = zipInputStream.getNextEntry();
                     continue;
                 }
-                var start = currentTimeMillis();
-                unzipStrategy.unzip(new S3ZipFile(bucketName, outputPrefix, zipInputStream, zipEntry), s3Client);
-                log.info("Unzipped {} in {} s", zipEntry.getName(), (currentTimeMillis() - start) / 1000);
+                if (checkpoint.isEntryComplete(zipEntry.getName())) {
+                    log.info("Skipping {}, already unzipped", zipEntry.getName());
+                    zipEntry = zipInputStream.getNextEntry();
+                    continue;
+                }
+                var entryEvent = new EntryInflatedEvent();
+                entryEvent.begin();
+                long start = System.nanoTime();
+                long compressedBytes = compressedInputStream.bytes();
+                long compressedNanos = compressedInputStream.nanos();
+                var entryInputStream = new MeteredInputStream(zipInputStream);
+                var zipFile = new S3ZipFile(bucketName, outputPrefix, entryInputStream, zipEntry)
+                        .withSourceKey(key)
+                        .withUploadScheduler(uploadScheduler)
+                        .withPartBufferPool(partBufferPool)
+                        .withAsyncPutObjects(asyncPutObjects);
+                if (asyncPutObjects != null) {
+                    // background upload of an earlier entry with the same name must not overwrite this one
+                    asyncPutObjects.awaitUploaded(zipFile.key());
+                }
+                unzipStrategy.unzip(zipFile, s3Client);
+                var entryName = zipEntry.getName();
+                if (asyncPutObjects != null) {
+                    asyncPutObjects.whenUploaded(zipFile.key(), () -> checkpoint.entryCompleted(entryName));
+                } else {
+                    checkpoint.entryCompleted(entryName);
+                }
+                entryUnzipped(entryEvent, key, entryName, compressedInputStream.bytes() - compressedBytes, entryInputStream.bytes(),
+                        inflateNanos(entryInputStream.nanos(), compressedInputStream.nanos() - compressedNanos), start);
+                entryCount++;
                 zipEntry = zipInputStream.getNextEntry();
             }
             zipInputStream.closeEntry();
 
         } catch (IOException e) {
-            throw new S3UnzipException("Failed reading zip input stream", e);
+            throw awaitAsyncPutObjects(asyncPutObjects, new S3UnzipException("Failed reading zip input stream", e));
+        } catch (RuntimeException e) {
+            throw awaitAsyncPutObjects(asyncPutObjects, e);
+        }
+        if (asyncPutObjects != null) {
+            try {
+                asyncPutObjects.await();
+            } catch (S3MultipartUploadException e) {
+                throw new S3UnzipException("Failed to upload entries of " + key, e);
+            }
+        }
+        archiveUnzipped(archiveEvent, bucketName, key, compressedInputStream.bytes(), entryCount, false, archiveStart);
+    }
+
+    /**
+     * @return time spent reading an entry without the time spent reading the compressed data it was inflated from
+     */
+    private static long inflateNanos(long entryNanos, long compressedNanos) {
+        return Math.max(0, entryNanos - compressedNanos);
+    }
+
+    /**
+     * Reports an unzipped entry to metrics and with its event, which began when the entry was opened
+     */
+    private void entryUnzipped(EntryInflatedEvent event, String key, String entryName, long compressedBytes, long uncompressedBytes,
+                               long inflateNanos, long start) {
+        long nanos = System.nanoTime() - start;
+        uploadScheduler.getMetrics().entryUnzipped(entryName, compressedBytes, uncompressedBytes, inflateNanos, nanos);
+        event.end();
+        if (event.shouldCommit()) {
+            event.archiveKey = key;
+            event.entryName = entryName;
+            event.compressedBytes = compressedBytes;
+            event.uncompressedBytes = uncompressedBytes;
+            event.inflateNanos = inflateNanos;
+            event.commit();
+        }
+        log.info("Unzipped {} in {} ms", entryName, nanos / 1_000_000);
+    }
+
+    /**
+     * Reports an unzipped archive to metrics and with its event, which began when unzipping started
+     */
+    private void archiveUnzipped(ArchiveExtractedEvent event, String bucketName, String key, long compressedBytes, int entryCount,
+                                 boolean randomAccess, long start) {
+        uploadScheduler.getMetrics().archiveUnzipped(key, compressedBytes, System.nanoTime() - start);
+        event.end();
+        if (event.shouldCommit()) {
+            event.bucketName = bucketName;
+            event.key = key;
+            event.compressedBytes = compressedBytes;
+            event.entryCount = entryCount;
+            event.randomAccess = randomAccess;
+            event.commit();
         }
     }
 
-    private List<S3ObjectSummary> findObjectSummaries(String bucket, String inputPrefix) {
-        var s3Objects = s3Client.listObjects(bucket, inputPrefix).getObjectSummaries();
-        log.debug("Found s3Objects: {}", s3Objects.stream().map(S3ObjectSummary::getKey).collect(joining(", ", "[", "]")));
-        return s3Objects;
+    /**
+     * Entries submitted before the archive failed are still uploaded, so that their progress is saved
+     */
+    private RuntimeException awaitAsyncPutObjects(AsyncPutObjects asyncPutObjects, RuntimeException failure) {
+        if (asyncPutObjects != null) {
+            try {
+                asyncPutObjects.await();
+            } catch (S3MultipartUploadException e) {
+                failure.addSuppressed(e);
+            }
+        }
+        return failure;
     }
 
-    private Optional<S3Object> getObjectIfZip(String bucket, S3ObjectSummary objectSummary) {
-        S3Object s3Object = s3Client.getObject(new GetObjectRequest(bucket, objectSummary.getKey()));
-        if (hasValidContentType(s3Object)) {
-            log.debug("Found zip s3Object: {}", s3Object.getKey());
-            return Optional.of(s3Object);
-        } else {
-            log.debug("Skipping s3Object: {} - content type does not match any of {}",
-                    s3Object.getKey(),
-                    contentTypes.stream().collect(joining(", ", "[", "]")));
-            return Optional.empty();
+    private void unzipRandomAccess(String bucketName, String key, long length, String outputPrefix, ArchiveCheckpoint checkpoint) {
+        var archiveEvent = new ArchiveExtractedEvent();
+        archiveEvent.begin();
+        long archiveStart = System.nanoTime();
+        var archiveBytes = new AtomicLong();
+        var entryOutputPrefix = normalizePrefix(outputPrefix);
+        var centralDirectory = ZipCentralDirectory.read(s3Client, bucketName, key, length);
+        log.info("Unzipping {} entries of {} with {} threads", centralDirectory.getEntries().size(), key, entryThreadCount);
+
+        var executorService = newExecutor(entryThreadCount, "s3-unzip-entry-");
+        var permits = new Semaphore(entryThreadCount);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (var entry : centralDirectory.getEntries()) {
+                if (entry.isDirectory()) {
+                    log.debug("Skipping directory {}", entry.getName());
+                    continue;
+                }
+                if (checkpoint.isEntryComplete(entry.getName())) {
+                    log.info("Skipping {}, already unzipped", entry.getName());
+                    continue;
+                }
+                futures.add(executorService.submit(() -> {
+                    // bounds entries extracted at once, a thread per task executor does not
+                    permits.acquire();
+                    try {
+                        unzipEntry(bucketName, key, entry, entryOutputPrefix, checkpoint, archiveBytes);
+                        return null;
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            futures.forEach(future -> future.cancel(true));
+            throw new S3UnzipException("Failed to unzip " + key, e.getCause());
+        } catch (InterruptedException e) {
+            futures.forEach(future -> future.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new S3UnzipException("Interrupted while unzipping " + key, e);
+        } finally {
+            executorService.shutdown();
         }
+        archiveUnzipped(archiveEvent, bucketName, key, archiveBytes.get(), futures.size(), true, archiveStart);
     }
 
-    private boolean hasValidContentType(S3Object s3Object) {
-        if (contentTypes == null || contentTypes.isEmpty()) {
-            return true;
+    private void unzipEntry(String bucketName, String key, ZipCentralDirectory.Entry entry, String outputPrefix, ArchiveCheckpoint checkpoint,
+                            AtomicLong archiveBytes) {
+        var event = new EntryInflatedEvent();
+        event.begin();
+        long start = System.nanoTime();
+        try (var inputStream = new S3ZipEntryInputStream(s3Client, bucketName, key, entry, downloadRetryCount, downloadRetryBackoffMillis,
+                uploadScheduler.getMetrics())) {
+            var entryInputStream = new MeteredInputStream(inputStream);
+            var zipFile = new S3ZipFile(bucketName, outputPrefix, entryInputStream, entry.toZipEntry())
+                    .withSourceKey(key)
+                    .withCentralDirectoryEntry(entry)
+                    .withUploadScheduler(uploadScheduler)
+                    .withPartBufferPool(partBufferPool);
+            unzipStrategy.unzip(zipFile, s3Client);
+            archiveBytes.addAndGet(inputStream.compressedBytes());
+            entryUnzipped(event, key, entry.getName(), inputStream.compressedBytes(), entryInputStream.bytes(),
+                    inflateNanos(entryInputStream.nanos(), inputStream.compressedNanos()), start);
         }
-        return contentTypes.contains(s3Object.getObjectMetadata().getContentType());
+        checkpoint.entryCompleted(entry.getName());
+    }
+
+    private static String normalizePrefix(String outputPrefix) {
+        return outputPrefix.endsWith("/") ? outputPrefix : outputPrefix + "/";
+    }
+
+    private ExecutorService newExecutor(int threadCount, String virtualThreadNamePrefix) {
+        return virtualThreads ? VirtualThreads.newThreadPerTaskExecutor(virtualThreadNamePrefix) : Executors.newFixedThreadPool(threadCount);
+    }
+
+    private boolean hasContentTypes() {
+        return contentTypes != null && !contentTypes.isEmpty();
+    }
+
+    private boolean hasValidContentType(ObjectMetadata objectMetadata) {
+        return !hasContentTypes() || contentTypes.contains(objectMetadata.getContentType());
+    }
+
+    /**
+     * Shuts down the {@link #uploadScheduler} and trims the {@link #partBufferPool}
+     */
+    @Override
+    public void close() {
+        uploadScheduler.close();
+        partBufferPool.trim();
     }
 }
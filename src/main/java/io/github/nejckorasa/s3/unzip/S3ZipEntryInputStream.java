@@ -0,0 +1,117 @@
+package io.github.nejckorasa.s3.unzip;
+
+import io.github.nejckorasa.s3.client.S3Operations;
+import io.github.nejckorasa.s3.metrics.UnzipMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Reads the data of a single zip entry through its own ranged GET request, starting at the entry's local header.
+ *
+ * <p> The request is only opened on the first read, entries that are never read do not download any data. Failed downloads are
+ * resumed, see {@link ResumableS3InputStream}. Bytes of the range read and time spent reading them are counted, so that inflating can be
+ * told apart from downloading.
+ */
+@Slf4j
+class S3ZipEntryInputStream extends InputStream {
+
+    private final S3Operations s3Client;
+    private final String bucketName;
+    private final String key;
+    private final ZipCentralDirectory.Entry entry;
+    private final int retryCount;
+    private final long retryBackoffMillis;
+    private final UnzipMetrics metrics;
+
+    private ResumableS3InputStream objectInputStream;
+    private MeteredInputStream compressedInputStream;
+    private ZipInputStream zipInputStream;
+    private boolean endOfEntry = false;
+    private boolean closed = false;
+
+    S3ZipEntryInputStream(S3Operations s3Client, String bucketName, String key, ZipCentralDirectory.Entry entry,
+                          int retryCount, long retryBackoffMillis, UnzipMetrics metrics) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.key = key;
+        this.entry = entry;
+        this.retryCount = retryCount;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return bytes of the archive read so far, including the local header
+     */
+    long compressedBytes() {
+        return compressedInputStream == null ? 0 : compressedInputStream.bytes();
+    }
+
+    /**
+     * @return nanoseconds spent downloading bytes of the archive so far
+     */
+    long compressedNanos() {
+        return compressedInputStream == null ? 0 : compressedInputStream.nanos();
+    }
+
+    @Override
+    public int read() throws IOException {
+        return endOfEntry(open().read());
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return endOfEntry(open().read(b, off, len));
+    }
+
+    private int endOfEntry(int read) {
+        if (read == -1) {
+            endOfEntry = true;
+        }
+        return read;
+    }
+
+    private ZipInputStream open() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (zipInputStream == null) {
+            log.debug("Opening {} at bytes {}-{} of {}", entry.getName(), entry.getLocalHeaderOffset(), entry.getEndOffset() - 1, key);
+            objectInputStream = new ResumableS3InputStream(s3Client, bucketName, key, entry.getLocalHeaderOffset(), entry.getEndOffset() - 1,
+                    retryCount, retryBackoffMillis, metrics);
+            compressedInputStream = new MeteredInputStream(objectInputStream);
+            zipInputStream = new ZipInputStream(compressedInputStream);
+            if (zipInputStream.getNextEntry() == null) {
+                throw new IOException("No local header found for " + entry.getName() + " in " + key);
+            }
+        }
+        return zipInputStream;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (objectInputStream == null) {
+            return;
+        }
+        if (!endOfEntry) {
+            // strategy did not read the whole entry, abort instead of draining the rest of the range
+            objectInputStream.abort();
+            return;
+        }
+        try {
+            // only the data descriptor, if any, is left in the range
+            objectInputStream.readAllBytes();
+            objectInputStream.close();
+        } catch (IOException e) {
+            log.debug("Failed closing {} of {}, aborting", entry.getName(), key, e);
+            objectInputStream.abort();
+        }
+    }
+}
@@ -1,17 +1,58 @@
 package io.github.nejckorasa.s3.unzip;
 
+import io.github.nejckorasa.s3.metrics.UnzipMetrics;
+import io.github.nejckorasa.s3.upload.AsyncPutObjects;
+import io.github.nejckorasa.s3.upload.PartBufferPool;
+import io.github.nejckorasa.s3.upload.S3UploadScheduler;
+import lombok.AllArgsConstructor;
 import lombok.Value;
+import lombok.With;
 
+import java.io.InputStream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 @Value
+@AllArgsConstructor
 public class S3ZipFile {
     String bucketName;
     String outputPrefix;
-    ZipInputStream inputStream;
+    InputStream inputStream;
     ZipEntry zipEntry;
 
+    /**
+     * Key of the source archive, set when known
+     */
+    @With
+    String sourceKey;
+
+    /**
+     * Central directory entry, set when the archive is read with random access
+     */
+    @With
+    ZipCentralDirectory.Entry centralDirectoryEntry;
+
+    /**
+     * Scheduler shared by uploads of all entries, when null each upload runs on its own
+     */
+    @With
+    S3UploadScheduler uploadScheduler;
+
+    /**
+     * Pool of part buffers shared by uploads of all entries, defaults to an unbounded pool for this entry only
+     */
+    @With
+    PartBufferPool partBufferPool;
+
+    /**
+     * Background uploads of small entries of the archive, when null each entry is uploaded before the next one is read
+     */
+    @With
+    AsyncPutObjects asyncPutObjects;
+
+    public S3ZipFile(String bucketName, String outputPrefix, InputStream inputStream, ZipEntry zipEntry) {
+        this(bucketName, outputPrefix, inputStream, zipEntry, null, null, null, new PartBufferPool(), null);
+    }
+
     public String filename() {
         return zipEntry.getName();
     }
@@ -27,4 +68,11 @@ public class S3ZipFile {
     public String key() {
         return outputPrefix + filename();
     }
-}
\ No newline at end of file
+
+    /**
+     * @return listener of measurements of the {@link #uploadScheduler}, {@link UnzipMetrics#NONE} when each upload runs on its own
+     */
+    public UnzipMetrics metrics() {
+        return uploadScheduler != null ? uploadScheduler.getMetrics() : UnzipMetrics.NONE;
+    }
+}
@@ -0,0 +1,32 @@
+package io.github.nejckorasa.s3.unzip;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Summary of unzipping multiple archives, archives that failed do not stop the others from being unzipped
+ */
+@Value
+public class UnzipResult {
+
+    /**
+     * Keys of archives unzipped successfully, in order of completion
+     */
+    List<String> unzippedKeys;
+
+    /**
+     * Archives that failed to unzip, in order of completion
+     */
+    List<Failure> failures;
+
+    public boolean isSuccessful() {
+        return failures.isEmpty();
+    }
+
+    @Value
+    public static class Failure {
+        String key;
+        Exception exception;
+    }
+}
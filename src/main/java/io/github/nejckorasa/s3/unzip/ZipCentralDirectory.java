@@ -0,0 +1,229 @@
+package io.github.nejckorasa.s3.unzip;
+
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import io.github.nejckorasa.s3.client.S3Operations;
+import lombok.AccessLevel;
+import lombok.Value;
+import lombok.With;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.ZipEntry;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Central directory of a zip archive stored in S3, read with ranged GET requests from the end of the object.
+ *
+ * <p> Knowing the central directory allows each entry to be read independently, see {@code Entry#getLocalHeaderOffset()} and
+ * {@code Entry#getEndOffset()}. Supports ZIP64 archives.
+ */
+@Slf4j
+@Value
+public class ZipCentralDirectory {
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int EOCD_MIN_SIZE = 22;
+    private static final int EOCD_MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int ZIP64_EOCD_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int ZIP64_EOCD_LOCATOR_SIZE = 20;
+    private static final int ZIP64_EOCD_SIGNATURE = 0x06064b50;
+    private static final int ZIP64_EOCD_SIZE = 56;
+    private static final int CENTRAL_HEADER_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int LOCAL_HEADER_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int ZIP64_EXTRA_FIELD_ID = 0x0001;
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    List<Entry> entries;
+
+    /**
+     * Reads the central directory of an archive.
+     *
+     * @param s3Client   S3 client
+     * @param bucketName bucket of the archive
+     * @param key        key of the archive
+     * @param length     length of the archive in bytes
+     * @return central directory with entries in the order of their local headers
+     * @throws S3UnzipException if the object is not a zip archive
+     */
+    public static ZipCentralDirectory read(S3Operations s3Client, String bucketName, String key, long length) {
+        if (length < EOCD_MIN_SIZE) {
+            throw new S3UnzipException("Not a zip archive, " + key + " has " + length + " bytes, fewer than the " + EOCD_MIN_SIZE
+                    + " bytes of the end of central directory record");
+        }
+        long tailStart = Math.max(0, length - (EOCD_MIN_SIZE + EOCD_MAX_COMMENT_SIZE + ZIP64_EOCD_LOCATOR_SIZE));
+        ByteBuffer tail = readRange(s3Client, bucketName, key, tailStart, length - 1);
+
+        int eocdPosition = findEndOfCentralDirectory(tail);
+        if (eocdPosition < 0) {
+            throw new S3UnzipException("End of central directory not found in " + key);
+        }
+
+        long entryCount = tail.getShort(eocdPosition + 10) & 0xFFFF;
+        long centralDirectorySize = tail.getInt(eocdPosition + 12) & ZIP64_MAGIC;
+        long centralDirectoryOffset = tail.getInt(eocdPosition + 16) & ZIP64_MAGIC;
+
+        int locatorPosition = eocdPosition - ZIP64_EOCD_LOCATOR_SIZE;
+        if (locatorPosition >= 0 && tail.getInt(locatorPosition) == ZIP64_EOCD_LOCATOR_SIGNATURE) {
+            long zip64EocdOffset = tail.getLong(locatorPosition + 8);
+            ByteBuffer zip64Eocd = readRange(s3Client, bucketName, key, zip64EocdOffset, zip64EocdOffset + ZIP64_EOCD_SIZE - 1);
+            if (zip64Eocd.getInt(0) != ZIP64_EOCD_SIGNATURE) {
+                throw new S3UnzipException("Invalid ZIP64 end of central directory in " + key);
+            }
+            entryCount = zip64Eocd.getLong(32);
+            centralDirectorySize = zip64Eocd.getLong(40);
+            centralDirectoryOffset = zip64Eocd.getLong(48);
+        }
+
+        log.debug("Reading central directory of {} with {} entries, offset: {}, size: {} bytes", key, entryCount, centralDirectoryOffset, centralDirectorySize);
+
+        ByteBuffer centralDirectory = centralDirectorySize == 0
+                ? ByteBuffer.allocate(0)
+                : readRange(s3Client, bucketName, key, centralDirectoryOffset, centralDirectoryOffset + centralDirectorySize - 1);
+
+        var entries = readEntries(centralDirectory, entryCount, key);
+        entries.sort(Comparator.comparingLong(Entry::getLocalHeaderOffset));
+
+        List<Entry> entriesWithEndOffset = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            long endOffset = i + 1 < entries.size() ? entries.get(i + 1).localHeaderOffset : centralDirectoryOffset;
+            entriesWithEndOffset.add(entries.get(i).withEndOffset(endOffset));
+        }
+        return new ZipCentralDirectory(entriesWithEndOffset);
+    }
+
+    /**
+     * Reads the local header of an entry to resolve the offset at which its data starts.
+     *
+     * @param s3Client   S3 client
+     * @param bucketName bucket of the archive
+     * @param key        key of the archive
+     * @param entry      central directory entry
+     * @return offset of the first byte of entry data
+     */
+    public static long readDataOffset(S3Operations s3Client, String bucketName, String key, Entry entry) {
+        long offset = entry.localHeaderOffset;
+        ByteBuffer localHeader = readRange(s3Client, bucketName, key, offset, offset + LOCAL_HEADER_SIZE - 1);
+        if (localHeader.getInt(0) != LOCAL_HEADER_SIGNATURE) {
+            throw new S3UnzipException("Invalid local header for " + entry.name + " in " + key);
+        }
+        int nameLength = localHeader.getShort(26) & 0xFFFF;
+        int extraLength = localHeader.getShort(28) & 0xFFFF;
+        return offset + LOCAL_HEADER_SIZE + nameLength + extraLength;
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer tail) {
+        for (int position = tail.limit() - EOCD_MIN_SIZE; position >= 0; position--) {
+            if (tail.getInt(position) == EOCD_SIGNATURE) {
+                return position;
+            }
+        }
+        return -1;
+    }
+
+    private static List<Entry> readEntries(ByteBuffer buffer, long entryCount, String key) {
+        List<Entry> entries = new ArrayList<>();
+        int position = 0;
+        for (long i = 0; i < entryCount; i++) {
+            if (buffer.getInt(position) != CENTRAL_HEADER_SIGNATURE) {
+                throw new S3UnzipException("Invalid central directory header in " + key);
+            }
+            int method = buffer.getShort(position + 10) & 0xFFFF;
+            long crc = buffer.getInt(position + 16) & ZIP64_MAGIC;
+            long compressedSize = buffer.getInt(position + 20) & ZIP64_MAGIC;
+            long size = buffer.getInt(position + 24) & ZIP64_MAGIC;
+            int nameLength = buffer.getShort(position + 28) & 0xFFFF;
+            int extraLength = buffer.getShort(position + 30) & 0xFFFF;
+            int commentLength = buffer.getShort(position + 32) & 0xFFFF;
+            long localHeaderOffset = buffer.getInt(position + 42) & ZIP64_MAGIC;
+
+            byte[] nameBytes = new byte[nameLength];
+            buffer.duplicate().position(position + CENTRAL_HEADER_SIZE).get(nameBytes);
+            String name = new String(nameBytes, UTF_8);
+
+            // ZIP64 extra field holds the values that are set to 0xFFFFFFFF, in this order
+            int extraPosition = position + CENTRAL_HEADER_SIZE + nameLength;
+            int extraEnd = extraPosition + extraLength;
+            while (extraPosition + 4 <= extraEnd) {
+                int headerId = buffer.getShort(extraPosition) & 0xFFFF;
+                int dataSize = buffer.getShort(extraPosition + 2) & 0xFFFF;
+                if (headerId == ZIP64_EXTRA_FIELD_ID) {
+                    int valuePosition = extraPosition + 4;
+                    if (size == ZIP64_MAGIC) {
+                        size = buffer.getLong(valuePosition);
+                        valuePosition += 8;
+                    }
+                    if (compressedSize == ZIP64_MAGIC) {
+                        compressedSize = buffer.getLong(valuePosition);
+                        valuePosition += 8;
+                    }
+                    if (localHeaderOffset == ZIP64_MAGIC) {
+                        localHeaderOffset = buffer.getLong(valuePosition);
+                    }
+                }
+                extraPosition += 4 + dataSize;
+            }
+
+            entries.add(new Entry(name, method, crc, compressedSize, size, localHeaderOffset, -1));
+            position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+        }
+        return entries;
+    }
+
+    private static ByteBuffer readRange(S3Operations s3Client, String bucketName, String key, long start, long end) {
+        var request = new GetObjectRequest(bucketName, key).withRange(start, end);
+        try (var s3Object = s3Client.getObject(request); var inputStream = s3Object.getObjectContent()) {
+            return ByteBuffer.wrap(inputStream.readAllBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            throw new S3UnzipException("Failed reading bytes " + start + "-" + end + " of " + key, e);
+        }
+    }
+
+    /**
+     * Central directory entry
+     */
+    @Value
+    public static class Entry {
+        String name;
+        int method;
+        long crc;
+        long compressedSize;
+        long size;
+        long localHeaderOffset;
+
+        /**
+         * Offset of the first byte after this entry's data (and data descriptor, if any)
+         */
+        @With(AccessLevel.PACKAGE)
+        long endOffset;
+
+        public boolean isDirectory() {
+            return name.endsWith("/");
+        }
+
+        public boolean isStored() {
+            return method == ZipEntry.STORED;
+        }
+
+        /**
+         * @return {@link ZipEntry} with name, method, sizes and crc set from the central directory
+         */
+        public ZipEntry toZipEntry() {
+            var zipEntry = new ZipEntry(name);
+            if (method == ZipEntry.STORED || method == ZipEntry.DEFLATED) {
+                zipEntry.setMethod(method);
+            }
+            zipEntry.setCrc(crc);
+            zipEntry.setCompressedSize(compressedSize);
+            zipEntry.setSize(size);
+            return zipEntry;
+        }
+    }
+}
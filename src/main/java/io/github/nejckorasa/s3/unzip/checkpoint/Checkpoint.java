@@ -0,0 +1,93 @@
+package io.github.nejckorasa.s3.unzip.checkpoint;
+
+import lombok.Value;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Progress of unzipping a single archive, entries listed as completed have been uploaded in full. Progress of an entry split into
+ * multiple objects is not recorded until all of its objects are uploaded.
+ *
+ * <p> Serialized as text, the first line holds the ETag of the archive and whether the whole archive is complete, each following line
+ * holds the name of a completed entry. Backslashes, line feeds and carriage returns in entry names are escaped with a backslash.
+ */
+@Value
+public class Checkpoint {
+
+    private static final String COMPLETE = "complete";
+    private static final String IN_PROGRESS = "in-progress";
+
+    /**
+     * ETag of the archive the checkpoint belongs to, a checkpoint of a different ETag does not apply
+     */
+    String eTag;
+
+    boolean complete;
+
+    Set<String> completedEntries;
+
+    public static Checkpoint empty(String eTag) {
+        return new Checkpoint(eTag, false, Set.of());
+    }
+
+    public String serialize() {
+        var sb = new StringBuilder()
+                .append(eTag)
+                .append(' ')
+                .append(complete ? COMPLETE : IN_PROGRESS)
+                .append('\n');
+        completedEntries.forEach(entry -> sb.append(escape(entry)).append('\n'));
+        return sb.toString();
+    }
+
+    public static Checkpoint parse(String serialized) {
+        var lines = serialized.split("\n");
+        var header = lines[0].split(" ");
+        if (header.length != 2) {
+            throw new IllegalArgumentException("Invalid checkpoint header: " + lines[0]);
+        }
+        Set<String> completedEntries = new LinkedHashSet<>();
+        for (int i = 1; i < lines.length; i++) {
+            if (!lines[i].isEmpty()) {
+                completedEntries.add(unescape(lines[i]));
+            }
+        }
+        return new Checkpoint(header[0], COMPLETE.equals(header[1]), completedEntries);
+    }
+
+    private static String escape(String entryName) {
+        var sb = new StringBuilder(entryName.length());
+        for (int i = 0; i < entryName.length(); i++) {
+            char c = entryName.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String unescape(String line) {
+        var sb = new StringBuilder(line.length());
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c != '\\' || i + 1 == line.length()) {
+                sb.append(c);
+                continue;
+            }
+            char escaped = line.charAt(++i);
+            sb.append(escaped == 'n' ? '\n' : escaped == 'r' ? '\r' : escaped);
+        }
+        return sb.toString();
+    }
+}
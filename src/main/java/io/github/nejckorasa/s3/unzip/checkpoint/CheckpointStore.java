@@ -0,0 +1,16 @@
+package io.github.nejckorasa.s3.unzip.checkpoint;
+
+import java.util.Optional;
+
+/**
+ * Durable store of {@link Checkpoint}s, keyed by the bucket and key of the archive.
+ *
+ * <p> Checkpoints are saved as entries complete, one save at a time per archive, possibly from multiple threads for different archives. Implementations must
+ * replace a checkpoint atomically, so that a job dying while saving leaves the previous checkpoint intact.
+ */
+public interface CheckpointStore {
+
+    Optional<Checkpoint> load(String bucketName, String key);
+
+    void save(String bucketName, String key, Checkpoint checkpoint);
+}
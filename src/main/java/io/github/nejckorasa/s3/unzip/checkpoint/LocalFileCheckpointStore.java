@@ -0,0 +1,73 @@
+package io.github.nejckorasa.s3.unzip.checkpoint;
+
+import io.github.nejckorasa.s3.unzip.S3UnzipException;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/**
+ * Stores checkpoints as files in a local directory, one file per archive, named by the SHA-256 hex digest of {@code bucket/key}, so
+ * that file names stay within file system limits for keys of any length.
+ *
+ * <p> A checkpoint is written to a temporary file first and moved in place.
+ */
+public class LocalFileCheckpointStore implements CheckpointStore {
+
+    private final Path directory;
+
+    public LocalFileCheckpointStore(@NonNull Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public Optional<Checkpoint> load(String bucketName, String key) {
+        var path = path(bucketName, key);
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(Checkpoint.parse(Files.readString(path, UTF_8)));
+        } catch (IOException e) {
+            throw new S3UnzipException("Failed reading checkpoint " + path, e);
+        }
+    }
+
+    @Override
+    public void save(String bucketName, String key, Checkpoint checkpoint) {
+        var path = path(bucketName, key);
+        try {
+            Files.createDirectories(directory);
+            var tmpPath = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            Files.writeString(tmpPath, checkpoint.serialize(), UTF_8);
+            Files.move(tmpPath, path, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new S3UnzipException("Failed writing checkpoint " + path, e);
+        }
+    }
+
+    private Path path(String bucketName, String key) {
+        return directory.resolve(sha256Hex(bucketName + "/" + key) + ".checkpoint");
+    }
+
+    private static String sha256Hex(String value) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(UTF_8));
+            var sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
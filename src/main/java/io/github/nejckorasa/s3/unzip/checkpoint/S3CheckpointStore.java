@@ -0,0 +1,76 @@
+package io.github.nejckorasa.s3.unzip.checkpoint;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import io.github.nejckorasa.s3.client.S3Operations;
+import io.github.nejckorasa.s3.unzip.S3UnzipException;
+import lombok.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Optional;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Stores checkpoints as objects in S3, one object per archive, under {@code prefix/bucket/key.checkpoint}.
+ *
+ * <p> A single PUT replaces the object atomically.
+ */
+public class S3CheckpointStore implements CheckpointStore {
+
+    private final S3Operations s3Client;
+    private final String bucketName;
+    private final String prefix;
+
+    /**
+     * @param s3Client   client used to read and write checkpoints
+     * @param bucketName bucket to store checkpoints in
+     * @param prefix     key prefix of checkpoint objects
+     */
+    public S3CheckpointStore(@NonNull AmazonS3 s3Client, @NonNull String bucketName, @NonNull String prefix) {
+        this(S3Operations.of(s3Client), bucketName, prefix);
+    }
+
+    /**
+     * @param s3Client   client used to read and write checkpoints
+     * @param bucketName bucket to store checkpoints in
+     * @param prefix     key prefix of checkpoint objects
+     */
+    public S3CheckpointStore(@NonNull S3Operations s3Client, @NonNull String bucketName, @NonNull String prefix) {
+        this.s3Client = s3Client;
+        this.bucketName = bucketName;
+        this.prefix = prefix.endsWith("/") ? prefix : prefix + "/";
+    }
+
+    @Override
+    public Optional<Checkpoint> load(String archiveBucketName, String archiveKey) {
+        var key = key(archiveBucketName, archiveKey);
+        try (var s3Object = s3Client.getObject(new GetObjectRequest(bucketName, key)); var inputStream = s3Object.getObjectContent()) {
+            return Optional.of(Checkpoint.parse(new String(inputStream.readAllBytes(), UTF_8)));
+        } catch (AmazonS3Exception e) {
+            if (e.getStatusCode() == 404) {
+                return Optional.empty();
+            }
+            throw e;
+        } catch (IOException e) {
+            throw new S3UnzipException("Failed reading checkpoint " + key, e);
+        }
+    }
+
+    @Override
+    public void save(String archiveBucketName, String archiveKey, Checkpoint checkpoint) {
+        byte[] bytes = checkpoint.serialize().getBytes(UTF_8);
+        var metadata = new ObjectMetadata();
+        metadata.setContentType("text/plain");
+        metadata.setContentLength(bytes.length);
+        s3Client.putObject(new PutObjectRequest(bucketName, key(archiveBucketName, archiveKey), new ByteArrayInputStream(bytes), metadata));
+    }
+
+    private String key(String archiveBucketName, String archiveKey) {
+        return prefix + archiveBucketName + "/" + archiveKey + ".checkpoint";
+    }
+}
@@ -1,15 +1,17 @@
 package io.github.nejckorasa.s3.unzip.strategy;
 
 import com.amazonaws.services.s3.AmazonS3;
+import io.github.nejckorasa.s3.client.S3Operations;
 import io.github.nejckorasa.s3.unzip.S3UnzipException;
 import io.github.nejckorasa.s3.unzip.S3ZipFile;
+import io.github.nejckorasa.s3.upload.PartBuffer;
+import io.github.nejckorasa.s3.upload.PartSizing;
 import io.github.nejckorasa.s3.upload.S3MultipartUpload;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.ByteArrayOutputStream;
-
 import static com.amazonaws.services.s3.internal.Constants.MB;
+import static io.github.nejckorasa.s3.upload.S3MultipartUpload.MIN_UPLOAD_PART_BYTES_SIZE;
 
 /**
  * Unzips and uploads a file without splitting (sharding) - it creates a 1:1 mapping between zipped and unzipped file
@@ -24,7 +26,8 @@ import static com.amazonaws.services.s3.internal.Constants.MB;
 public class NoSplitUnzipStrategy implements UnzipStrategy {
 
     /**
-     * File (shard) size limit, i.e. 100 MB will split the source zip entry into files with size limit of 100 MB
+     * S3 multipart upload part limit in bytes, parts are buffered in place in buffers of this size. Smaller or larger parts are used
+     * depending on the size of the entry, see {@link #partSizing}.
      *
      * @see S3MultipartUpload
      */
@@ -32,6 +35,20 @@ public class NoSplitUnzipStrategy implements UnzipStrategy {
     @With
     private int uploadPartBytesLimit = 20 * MB;
 
+    /**
+     * Chooses part sizes from the size of the entry, so that large entries fit into the part limit and small ones use small buffers
+     */
+    @NonNull
+    @With
+    private PartSizing partSizing = PartSizing.DEFAULT;
+
+    /**
+     * Entries that end within this many bytes are uploaded with a single PUT request instead of a multipart upload, saving the initiate
+     * and complete requests. Capped by {@link #uploadPartBytesLimit}, set to 0 to always use multipart uploads.
+     */
+    @With
+    private int putObjectBytesLimit = 4 * MB;
+
     /**
      * Configuration for S3 multipart upload. Configures {@link S3MultipartUpload},
      */
@@ -49,46 +66,81 @@ public class NoSplitUnzipStrategy implements UnzipStrategy {
 
     @Override
     public void unzip(S3ZipFile zipFile, AmazonS3 s3Client) {
+        unzip(zipFile, S3Operations.of(s3Client));
+    }
+
+    @Override
+    public void unzip(S3ZipFile zipFile, S3Operations s3Client) {
         String filename = zipFile.filename();
         long compressedSize = zipFile.compressedSize();
         long size = zipFile.size();
 
         String key = zipFile.key();
-        var s3MultipartUpload = new S3MultipartUpload(zipFile.getBucketName(), key, s3Client, config);
-        s3MultipartUpload.initialize();
+        var s3MultipartUpload = new S3MultipartUpload(zipFile.getBucketName(), key, s3Client, config, zipFile.getUploadScheduler());
 
         log.info("Unzipping {}, compressed: {} bytes, extracted: {} bytes to {}", filename, compressedSize, size, key);
+
+        var inputStream = zipFile.getInputStream();
+        var partBufferPool = zipFile.getPartBufferPool();
+        PartBuffer partBuffer = null;
         try {
-            int bytesRead;
             long allBytesRead = 0;
-            long uploadPartBytes = 0;
-            long partNumber = 0;
-
-            byte[] data = new byte[uploadPartBytesLimit];
-            var outputStream = new ByteArrayOutputStream();
-
-            while ((bytesRead = zipFile.getInputStream().read(data, 0, data.length)) != -1) {
-                outputStream.write(data, 0, bytesRead);
-
-                if (uploadPartBytes < uploadPartBytesLimit) {
-                    uploadPartBytes += bytesRead;
-                    continue;
+            int partNumber = 1;
+
+            partBuffer = partBufferPool.acquire(partSizing.partBytes(size, partNumber, uploadPartBytesLimit));
+            boolean full = partBuffer.fill(inputStream);
+            if (full && partBuffer.capacity() < Math.min(MIN_UPLOAD_PART_BYTES_SIZE, uploadPartBytesLimit)) {
+                // entry is larger than its size says, continue in a buffer large enough to be uploaded as a part
+                var bytes = partBuffer.toByteArray();
+                partBuffer.release();
+                partBuffer = null;
+                partBuffer = partBufferPool.acquire(partSizing.partBytes(-1, partNumber, uploadPartBytesLimit));
+                partBuffer.write(bytes, 0, bytes.length);
+                full = partBuffer.fill(inputStream);
+            }
+            int nextByte = full ? inputStream.read() : -1;
+
+            if (nextByte == -1 && partBuffer.size() <= putObjectBytesLimit && s3MultipartUpload.canPutObject()) {
+                var smallBuffer = partBuffer;
+                partBuffer = null;
+                var asyncPutObjects = zipFile.getAsyncPutObjects();
+                if (asyncPutObjects != null && asyncPutObjects.canSubmit(smallBuffer.capacity())) {
+                    asyncPutObjects.submit(key, s3MultipartUpload, smallBuffer);
+                    log.info("Unzipped file: {}, uploading in the background", filename);
+                    return;
                 }
+                s3MultipartUpload.putObject(smallBuffer);
+                log.info("Unzipped and uploaded file: {} with a single request", filename);
+                return;
+            }
 
-                partNumber += 1;
-                allBytesRead += bytesRead;
+            s3MultipartUpload.initialize();
 
+            // upload full buffer as a part only once there is more data, last buffer is uploaded as final part
+            while (nextByte != -1) {
+                allBytesRead += partBuffer.size();
                 log.debug("Uploading part [{}] for file: {} - Read {} bytes out of {} bytes", partNumber, filename, allBytesRead, size);
 
-                s3MultipartUpload.uploadPart(outputStream.toByteArray());
-                outputStream.reset();
-                uploadPartBytes = 0;
+                var fullPartBuffer = partBuffer;
+                partBuffer = null;
+                s3MultipartUpload.uploadPart(fullPartBuffer);
+                partNumber += 1;
+
+                partBuffer = partBufferPool.acquire(partSizing.partBytes(size, partNumber, uploadPartBytesLimit));
+                partBuffer.write(nextByte);
+                full = partBuffer.fill(inputStream);
+                nextByte = full ? inputStream.read() : -1;
             }
 
-            s3MultipartUpload.uploadFinalPart(outputStream.toByteArray());
+            var finalPartBuffer = partBuffer;
+            partBuffer = null;
+            s3MultipartUpload.uploadFinalPart(finalPartBuffer);
             log.info("Unzipped and uploaded file: {} in {} parts", filename, partNumber);
 
         } catch (Throwable t) {
+            if (partBuffer != null) {
+                partBuffer.release();
+            }
             s3MultipartUpload.abort();
             throw new S3UnzipException("Failed to unzip " + filename, t);
         }
@@ -1,22 +1,27 @@
 package io.github.nejckorasa.s3.unzip.strategy;
 
 import com.amazonaws.services.s3.AmazonS3;
+import io.github.nejckorasa.s3.client.S3Operations;
+import io.github.nejckorasa.s3.jfr.ShardCompletedEvent;
 import io.github.nejckorasa.s3.unzip.S3UnzipException;
 import io.github.nejckorasa.s3.unzip.S3ZipFile;
+import io.github.nejckorasa.s3.upload.PartBuffer;
+import io.github.nejckorasa.s3.upload.PartBufferPool;
+import io.github.nejckorasa.s3.upload.PartSizing;
 import io.github.nejckorasa.s3.upload.S3MultipartUpload;
 import lombok.*;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.ByteArrayOutputStream;
-import java.util.Scanner;
 
 import static com.amazonaws.services.s3.internal.Constants.MB;
-import static java.nio.charset.StandardCharsets.UTF_8;
+import static io.github.nejckorasa.s3.upload.S3MultipartUpload.MIN_UPLOAD_PART_BYTES_SIZE;
 
 /**
  * Unzips and uploads a text file with splitting (sharding) - it creates a 1:n mappings between zipped and unzipped files.
  *
- * <p> It reads the file as UTF-8 text file split into lines.
+ * <p> It reads the file as text split into lines. Lines are found by scanning bytes for line feeds, the text is never decoded, so any
+ * ASCII compatible encoding (e.g. UTF-8) works. Line endings (LF or CRLF) are preserved and output bytes match the input exactly.
  * <p> Set {@link #header} to 'true' if zipped file contains a header that needs to be included with every split file/shard (e.g. csv files). Defaults to false.
  * <p> This strategy is suitable for larger files as it splits them into smaller, more manageable unzipped files (shards).
  *
@@ -29,8 +34,12 @@ public class SplitTextUnzipStrategy implements UnzipStrategy {
 
     public static final String LINE_BREAK = "\n";
 
+    private static final byte LINE_BREAK_BYTE = '\n';
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
     /**
-     * S3 multipart upload part limit in bytes.
+     * S3 multipart upload part limit in bytes. Smaller or larger parts are used depending on the size of the entry, see
+     * {@link #partSizing}.
      *
      * @see S3MultipartUpload
      */
@@ -38,6 +47,13 @@ public class SplitTextUnzipStrategy implements UnzipStrategy {
     @With
     private int uploadPartBytesLimit = 20 * MB;
 
+    /**
+     * Chooses part sizes from the size of the entry, so that large shards fit into the part limit and small ones use small buffers
+     */
+    @NonNull
+    @With
+    private PartSizing partSizing = PartSizing.DEFAULT;
+
     /**
      * Add a header line to all files, i.e. first line of the source zip entry will be replicated to all output files
      */
@@ -68,6 +84,11 @@ public class SplitTextUnzipStrategy implements UnzipStrategy {
 
     @Override
     public void unzip(S3ZipFile zipFile, AmazonS3 s3Client) {
+        unzip(zipFile, S3Operations.of(s3Client));
+    }
+
+    @Override
+    public void unzip(S3ZipFile zipFile, S3Operations s3Client) {
         String filename = zipFile.filename();
         long compressedSize = zipFile.compressedSize();
         long size = zipFile.size();
@@ -76,98 +97,213 @@ public class SplitTextUnzipStrategy implements UnzipStrategy {
         log.info("Unzipping {}, compressed: {} bytes, extracted: {} bytes to {}", filename, compressedSize, size, key);
 
         int fileNumber = 1;
-        Scanner scanner = new Scanner(zipFile.getInputStream(), UTF_8);
-        var s3MultipartUpload = initializeS3MultipartUpload(s3Client, zipFile, fileNumber);
+        var inputStream = zipFile.getInputStream();
+        var shardUpload = new ShardUpload(initializeS3MultipartUpload(s3Client, zipFile, fileNumber), zipFile, fileNumber);
 
         try {
-            var outputStream = new ByteArrayOutputStream();
+            var headerStream = new ByteArrayOutputStream();
+
+            byte[] data = new byte[READ_BUFFER_SIZE];
+            int bytesRead;
 
             long allBytesRead = 0;
             long uploadPartBytes = 0;
             long fileBytes = 0;
+            long lineBytes = 0;
 
-            String headerLine = null;
+            byte[] headerLine = null;
 
-            long partNumber = 0;
             boolean newFile = false;
-
-            while (scanner.hasNextLine()) {
-                String line = scanner.nextLine() + LINE_BREAK;
-
-                if (header && headerLine == null) {
-                    headerLine = line;
-                }
-
-                long bytesRead = 0;
-
-                // write header line if new file
-                if (header && newFile) {
-                    bytesRead += writeLine(headerLine, outputStream);
-                    newFile = false;
-                }
-
-                // write line
-                bytesRead += writeLine(line, outputStream);
-                fileBytes += bytesRead;
-                allBytesRead += bytesRead;
-
-                if (uploadPartBytes < uploadPartBytesLimit) {
-                    uploadPartBytes += bytesRead;
-                    continue;
-                }
-
-                // upload new part
-                partNumber += 1;
-
-                // have reached file bytes limit
-                if (fileBytes > fileBytesLimit) {
-                    log.debug("Uploading final part [{}] for file: {} and shard file number: {} - Read {} bytes out of {} bytes", partNumber, filename, fileNumber, allBytesRead, size);
-
-                    // finalize upload with current file
-                    s3MultipartUpload.uploadFinalPart(outputStream.toByteArray());
-                    partNumber = 1;
-                    fileNumber += 1;
-                    fileBytes = 0;
-                    newFile = true;
-
-                    log.info("Unzipped and uploaded file: {} shard file number {} in {} parts", filename, fileNumber, partNumber);
-
-                    // initialize new multipart upload
-                    s3MultipartUpload = initializeS3MultipartUpload(s3Client, zipFile, fileNumber);
-                } else {
-                    log.debug("Uploading part [{}] for file: {} and shard file number: {} - Read {} bytes out of {} bytes", partNumber, filename, fileNumber, allBytesRead, size);
-                    s3MultipartUpload.uploadPart(outputStream.toByteArray());
+            boolean newLine = true;
+
+            while ((bytesRead = inputStream.read(data, 0, data.length)) != -1) {
+                int position = 0;
+                while (position < bytesRead) {
+                    if (newLine && newFile) {
+                        // initialize new multipart upload only once there is a line to write
+                        shardUpload = new ShardUpload(initializeS3MultipartUpload(s3Client, zipFile, fileNumber), zipFile, fileNumber);
+
+                        // write header line if new file
+                        if (header) {
+                            shardUpload.write(headerLine, 0, headerLine.length);
+                            lineBytes += headerLine.length;
+                        }
+                        newFile = false;
+                    }
+                    newLine = false;
+
+                    // write line, or the part of it that is in the buffer
+                    int lineEnd = indexOfLineBreak(data, position, bytesRead);
+                    int end = lineEnd == -1 ? bytesRead : lineEnd + 1;
+                    shardUpload.write(data, position, end - position);
+                    if (header && headerLine == null) {
+                        headerStream.write(data, position, end - position);
+                    }
+                    lineBytes += end - position;
+                    position = end;
+
+                    if (lineEnd == -1) {
+                        continue;
+                    }
+
+                    newLine = true;
+                    if (header && headerLine == null) {
+                        headerLine = headerStream.toByteArray();
+                    }
+
+                    fileBytes += lineBytes;
+                    allBytesRead += lineBytes;
+                    long lineBytesRead = lineBytes;
+                    lineBytes = 0;
+
+                    // shard can only end once a whole part has been written since last check
+                    if (uploadPartBytes < uploadPartBytesLimit) {
+                        uploadPartBytes += lineBytesRead;
+                        continue;
+                    }
+                    uploadPartBytes = 0;
+
+                    // have reached file bytes limit
+                    if (fileBytes > fileBytesLimit) {
+                        log.debug("Uploading final part for file: {} and shard file number: {} - Read {} bytes out of {} bytes", filename, fileNumber, allBytesRead, size);
+
+                        // finalize upload with current file
+                        shardUpload.complete(fileBytes);
+                        log.info("Unzipped and uploaded file: {} shard file number {} in {} parts", filename, fileNumber, shardUpload.partNumber);
+
+                        fileNumber += 1;
+                        fileBytes = 0;
+                        newFile = true;
+                    }
                 }
-
-                outputStream.reset();
-                uploadPartBytes = 0;
             }
 
-            // upload remaining part of output stream as final part
-            s3MultipartUpload.uploadFinalPart(outputStream.toByteArray());
+            if (newFile) {
+                // last shard ended with the last line
+                fileNumber -= 1;
+            } else {
+                // upload remaining buffered data as final part
+                shardUpload.complete(fileBytes + lineBytes);
+            }
             log.info("Unzipped and uploaded file: {} sharded into {} files", filename, fileNumber);
 
         } catch (Throwable t) {
-            s3MultipartUpload.abort();
+            shardUpload.abort();
             throw new S3UnzipException("Failed to unzip " + filename, t);
         }
     }
 
-    private S3MultipartUpload initializeS3MultipartUpload(AmazonS3 s3Client, S3ZipFile s3ZipFile, int fileNumber) {
+    private S3MultipartUpload initializeS3MultipartUpload(S3Operations s3Client, S3ZipFile s3ZipFile, int fileNumber) {
         String filenameWithNumber = fileNumber + "-" + s3ZipFile.filename();
         log.debug("Initializing upload for file: {}", filenameWithNumber);
 
         String key = s3ZipFile.getOutputPrefix() + filenameWithNumber;
-        var multipartUpload = new S3MultipartUpload(s3ZipFile.getBucketName(), key, s3Client, config);
+        var multipartUpload = new S3MultipartUpload(s3ZipFile.getBucketName(), key, s3Client, config, s3ZipFile.getUploadScheduler());
         multipartUpload.initialize();
 
         return multipartUpload;
     }
 
-    private long writeLine(String line, ByteArrayOutputStream outputStream) {
-        byte[] bytes = line.getBytes(UTF_8);
-        int bytesRead = bytes.length;
-        outputStream.write(bytes, 0, bytesRead);
-        return bytesRead;
+    /**
+     * Multipart upload of a single shard, writes are buffered in part buffers which are uploaded as they fill up. Completed shards are
+     * reported to metrics and with {@link ShardCompletedEvent}.
+     */
+    private final class ShardUpload {
+        private final S3MultipartUpload s3MultipartUpload;
+        private final S3ZipFile zipFile;
+        private final PartBufferPool partBufferPool;
+        private final long sizeHint;
+        private final int shardNumber;
+        private final ShardCompletedEvent event = new ShardCompletedEvent();
+        private PartBuffer partBuffer;
+        private int partNumber = 0;
+        private boolean completed = false;
+
+        /**
+         * Parts are sized by the size of the entry, the shard is at most as large
+         */
+        private ShardUpload(S3MultipartUpload s3MultipartUpload, S3ZipFile zipFile, int shardNumber) {
+            this.s3MultipartUpload = s3MultipartUpload;
+            this.zipFile = zipFile;
+            this.partBufferPool = zipFile.getPartBufferPool();
+            this.sizeHint = zipFile.size();
+            this.shardNumber = shardNumber;
+            event.begin();
+        }
+
+        private void write(byte[] bytes, int offset, int length) {
+            while (length > 0) {
+                if (partBuffer == null) {
+                    partBuffer = acquirePartBuffer();
+                } else if (partBuffer.isFull() && partBuffer.capacity() < Math.min(MIN_UPLOAD_PART_BYTES_SIZE, uploadPartBytesLimit)) {
+                    // entry is larger than its size says, continue in a buffer large enough to be uploaded as a part
+                    var written = partBuffer.toByteArray();
+                    partBuffer.release();
+                    partBuffer = null;
+                    partBuffer = partBufferPool.acquire(partSizing.partBytes(-1, partNumber + 1, uploadPartBytesLimit));
+                    partBuffer.write(written, 0, written.length);
+                } else if (partBuffer.isFull()) {
+                    uploadPart();
+                    partBuffer = acquirePartBuffer();
+                }
+                int written = partBuffer.write(bytes, offset, length);
+                offset += written;
+                length -= written;
+            }
+        }
+
+        private void uploadPart() {
+            var fullPartBuffer = partBuffer;
+            partBuffer = null;
+            partNumber += 1;
+            log.debug("Uploading part [{}] for {}", partNumber, s3MultipartUpload);
+            s3MultipartUpload.uploadPart(fullPartBuffer);
+        }
+
+        /**
+         * @param bytes size of the shard
+         */
+        private void complete(long bytes) {
+            var finalPartBuffer = partBuffer != null ? partBuffer : acquirePartBuffer();
+            partBuffer = null;
+            partNumber += 1;
+            completed = true;
+            s3MultipartUpload.uploadFinalPart(finalPartBuffer);
+
+            zipFile.metrics().shardCompleted(zipFile.filename(), shardNumber, bytes);
+            event.end();
+            if (event.shouldCommit()) {
+                event.entryName = zipFile.filename();
+                event.key = s3MultipartUpload.getKey();
+                event.uploadId = s3MultipartUpload.getUploadId();
+                event.shardNumber = shardNumber;
+                event.bytes = bytes;
+                event.parts = partNumber;
+                event.commit();
+            }
+        }
+
+        private PartBuffer acquirePartBuffer() {
+            return partBufferPool.acquire(partSizing.partBytes(sizeHint, partNumber + 1, uploadPartBytesLimit));
+        }
+
+        private void abort() {
+            if (partBuffer != null) {
+                partBuffer.release();
+                partBuffer = null;
+            }
+            if (!completed) {
+                s3MultipartUpload.abort();
+            }
+        }
+    }
+
+    private static int indexOfLineBreak(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == LINE_BREAK_BYTE) {
+                return i;
+            }
+        }
+        return -1;
     }
 }
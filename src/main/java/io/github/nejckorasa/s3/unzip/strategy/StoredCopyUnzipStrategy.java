@@ -0,0 +1,138 @@
+package io.github.nejckorasa.s3.unzip.strategy;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.DeleteObjectRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import io.github.nejckorasa.s3.client.S3Operations;
+import io.github.nejckorasa.s3.unzip.S3UnzipException;
+import io.github.nejckorasa.s3.unzip.S3ZipFile;
+import io.github.nejckorasa.s3.unzip.ZipCentralDirectory;
+import io.github.nejckorasa.s3.upload.S3MultipartUpload;
+import lombok.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+import static com.amazonaws.services.s3.internal.Constants.MB;
+
+/**
+ * Extracts STORED (uncompressed) entries without downloading them - it creates a 1:1 mapping between zipped and unzipped file by copying
+ * the entry's byte range of the archive within S3, see {@link S3MultipartUpload#copyPart(String, String, long, long)}.
+ *
+ * <p> Requires the central directory, i.e. {@link io.github.nejckorasa.s3.unzip.S3UnzipManager} with random access enabled. Compressed
+ * entries, or entries read without random access, are extracted with the {@link #fallbackStrategy}.
+ *
+ * <p> Suitable for archives of already compressed data (e.g. parquet or gz files), which are usually stored without compression.
+ */
+@Slf4j
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class StoredCopyUnzipStrategy implements UnzipStrategy {
+
+    /**
+     * Maximum size of a copied part, exceeded by entries that would otherwise need more than
+     * {@link S3MultipartUpload#MAX_UPLOAD_NUMBER} parts. S3 allows copied parts of up to 5 GB.
+     *
+     * @see S3MultipartUpload
+     */
+    @NonNull
+    @With
+    private long copyPartBytesLimit = 100 * MB;
+
+    /**
+     * Download the copied object after upload and verify its CRC-32 matches the one in the central directory. Defaults to false.
+     */
+    @With
+    private boolean verifyCrc = false;
+
+    /**
+     * Strategy used for entries that cannot be copied
+     */
+    @NonNull
+    @With
+    private UnzipStrategy fallbackStrategy = new NoSplitUnzipStrategy();
+
+    /**
+     * Configuration for S3 multipart upload. Configures {@link S3MultipartUpload},
+     */
+    @NonNull
+    private S3MultipartUpload.Config config = S3MultipartUpload.Config.DEFAULT;
+
+    /**
+     * Creates StoredCopyUnzipStrategy with provided configuration for {@link S3MultipartUpload}
+     *
+     * @param config Multipart upload configuration for {@link S3MultipartUpload}
+     */
+    public StoredCopyUnzipStrategy(@NonNull S3MultipartUpload.Config config) {
+        this.config = config;
+    }
+
+    @Override
+    public void unzip(S3ZipFile zipFile, AmazonS3 s3Client) {
+        unzip(zipFile, S3Operations.of(s3Client));
+    }
+
+    @Override
+    public void unzip(S3ZipFile zipFile, S3Operations s3Client) {
+        var entry = zipFile.getCentralDirectoryEntry();
+        if (entry == null || !entry.isStored() || entry.getSize() == 0) {
+            fallbackStrategy.unzip(zipFile, s3Client);
+            return;
+        }
+
+        if (copyPartBytesLimit < S3MultipartUpload.MIN_UPLOAD_PART_BYTES_SIZE) {
+            throw new IllegalStateException("Part size cannot be smaller than " + S3MultipartUpload.MIN_UPLOAD_PART_BYTES_SIZE);
+        }
+
+        String filename = zipFile.filename();
+        String bucketName = zipFile.getBucketName();
+        String sourceKey = zipFile.getSourceKey();
+        String key = zipFile.key();
+
+        long dataOffset = ZipCentralDirectory.readDataOffset(s3Client, bucketName, sourceKey, entry);
+        long lastByte = dataOffset + entry.getSize() - 1;
+        long partBytes = Math.max(copyPartBytesLimit, (entry.getSize() + S3MultipartUpload.MAX_UPLOAD_NUMBER - 1) / S3MultipartUpload.MAX_UPLOAD_NUMBER);
+
+        log.info("Copying {}, stored: {} bytes at offset {} of {} to {}", filename, entry.getSize(), dataOffset, sourceKey, key);
+
+        var s3MultipartUpload = new S3MultipartUpload(bucketName, key, s3Client, config, zipFile.getUploadScheduler());
+        s3MultipartUpload.initialize();
+
+        int partNumber = 0;
+        try {
+            for (long firstByte = dataOffset; firstByte <= lastByte; firstByte += partBytes) {
+                partNumber += 1;
+                s3MultipartUpload.copyPart(bucketName, sourceKey, firstByte, Math.min(firstByte + partBytes, lastByte + 1) - 1);
+            }
+            s3MultipartUpload.complete();
+            log.info("Copied file: {} in {} parts", filename, partNumber);
+        } catch (Throwable t) {
+            s3MultipartUpload.abort();
+            throw new S3UnzipException("Failed to copy " + filename, t);
+        }
+
+        if (verifyCrc) {
+            verifyCrc(s3Client, bucketName, key, entry);
+        }
+    }
+
+    private void verifyCrc(S3Operations s3Client, String bucketName, String key, ZipCentralDirectory.Entry entry) {
+        var crc = new CRC32();
+        try (var s3Object = s3Client.getObject(new GetObjectRequest(bucketName, key)); var inputStream = s3Object.getObjectContent()) {
+            byte[] data = new byte[64 * 1024];
+            int bytesRead;
+            while ((bytesRead = inputStream.read(data)) != -1) {
+                crc.update(data, 0, bytesRead);
+            }
+        } catch (IOException e) {
+            throw new S3UnzipException("Failed to verify CRC of " + key, e);
+        }
+
+        if (crc.getValue() != entry.getCrc()) {
+            s3Client.deleteObject(new DeleteObjectRequest(bucketName, key));
+            throw new S3UnzipException(String.format("CRC mismatch for %s, expected %08x got %08x", key, entry.getCrc(), crc.getValue()));
+        }
+        log.debug("Verified CRC of {}", key);
+    }
+}
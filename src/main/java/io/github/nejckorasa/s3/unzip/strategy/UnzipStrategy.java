@@ -1,9 +1,42 @@
 package io.github.nejckorasa.s3.unzip.strategy;
 
 import com.amazonaws.services.s3.AmazonS3;
+import io.github.nejckorasa.s3.client.AmazonS3Operations;
+import io.github.nejckorasa.s3.client.S3Operations;
 import io.github.nejckorasa.s3.unzip.S3ZipFile;
 
 public interface UnzipStrategy {
 
     void unzip(S3ZipFile zipFile, AmazonS3 s3Client);
+
+    /**
+     * Unzips with the operations of any client, {@link io.github.nejckorasa.s3.unzip.S3UnzipManager} calls this method. Defaults to
+     * {@link #unzip(S3ZipFile, AmazonS3)} with the client of {@link AmazonS3Operations}, a strategy used with other clients, e.g. of the
+     * SDK v2, must override it, otherwise the manager cannot be created, see {@link #supports(S3Operations)}. Provided strategies
+     * implement both methods.
+     */
+    default void unzip(S3ZipFile zipFile, S3Operations s3Client) {
+        if (!(s3Client instanceof AmazonS3Operations)) {
+            throw new UnsupportedOperationException(getClass().getName() + " only unzips with AmazonS3, override unzip(S3ZipFile, S3Operations) "
+                    + "to unzip with " + s3Client.getClass().getName());
+        }
+        unzip(zipFile, ((AmazonS3Operations) s3Client).getS3Client());
+    }
+
+    /**
+     * Checked when {@link io.github.nejckorasa.s3.unzip.S3UnzipManager} is created, so a strategy unable to unzip with its client fails
+     * early rather than on the first entry. Override when {@link #unzip(S3ZipFile, S3Operations)} is overridden only to delegate.
+     *
+     * @return true if the client is {@link AmazonS3Operations} or the strategy overrides {@link #unzip(S3ZipFile, S3Operations)}
+     */
+    default boolean supports(S3Operations s3Client) {
+        if (s3Client instanceof AmazonS3Operations) {
+            return true;
+        }
+        try {
+            return getClass().getMethod("unzip", S3ZipFile.class, S3Operations.class).getDeclaringClass() != UnzipStrategy.class;
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
@@ -0,0 +1,128 @@
+package io.github.nejckorasa.s3.upload;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Limit of concurrently running upload tasks, adapted to throttling and latency of part uploads (AIMD).
+ *
+ * <p> The limit starts at the minimum and grows by one with each healthy part until the first back-off, then by one per limit's worth of
+ * healthy parts. It is halved when S3 throttles (429, 503 SlowDown) and reduced by a tenth when recent part latency, per byte, rises
+ * well above its long-term average. Back-offs happen at most once per {@link #DECREASE_INTERVAL_MILLIS}, so that a burst of failures
+ * of parts started together counts once. The limit always stays within the given bounds.
+ *
+ * <p> A fixed limit is a controller with equal bounds, see {@link #fixed(int)}. Thread-safe.
+ */
+@Slf4j
+public class AdaptiveConcurrency {
+
+    static final long DECREASE_INTERVAL_MILLIS = 1000;
+
+    private static final double SHORT_LATENCY_WEIGHT = 0.2;
+    private static final double LONG_LATENCY_WEIGHT = 0.02;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double THROTTLED_DECREASE = 0.5;
+    private static final double LATENCY_DECREASE = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private double limit;
+    private double shortLatency = 0;
+    private double longLatency = 0;
+    private boolean slowStart = true;
+    private long lastDecreaseNanos = 0;
+    private Runnable onLimitIncreased = () -> {
+    };
+
+    /**
+     * @param minLimit minimum number of concurrently running tasks, the starting limit
+     * @param maxLimit maximum number of concurrently running tasks
+     */
+    public AdaptiveConcurrency(int minLimit, int maxLimit) {
+        Assertions.assertOrThrow(() -> minLimit < 1, "Min limit must be at least 1");
+        Assertions.assertOrThrow(() -> maxLimit < minLimit, "Max limit must be at least min limit");
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = minLimit;
+    }
+
+    public static AdaptiveConcurrency fixed(int limit) {
+        return new AdaptiveConcurrency(limit, limit);
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Records a successfully uploaded part
+     *
+     * @param latencyNanos time the upload took
+     * @param bytes        size of the part
+     */
+    public void onSuccess(long latencyNanos, long bytes) {
+        boolean increased;
+        synchronized (this) {
+            if (bytes <= 0 || minLimit == maxLimit) {
+                return;
+            }
+            double latency = (double) latencyNanos / bytes;
+            if (longLatency == 0) {
+                shortLatency = latency;
+                longLatency = latency;
+            }
+            shortLatency += (latency - shortLatency) * SHORT_LATENCY_WEIGHT;
+            longLatency += (latency - longLatency) * LONG_LATENCY_WEIGHT;
+
+            if (shortLatency > longLatency * LATENCY_TOLERANCE) {
+                decrease(LATENCY_DECREASE, "latency");
+                return;
+            }
+            int previousLimit = getLimit();
+            limit = Math.min(maxLimit, limit + (slowStart ? 1 : 1 / limit));
+            increased = getLimit() > previousLimit;
+            if (increased) {
+                log.debug("Increased upload concurrency to {}", getLimit());
+            }
+        }
+        if (increased) {
+            onLimitIncreased.run();
+        }
+    }
+
+    /**
+     * Records a part rejected due to throttling
+     */
+    public synchronized void onThrottled() {
+        if (minLimit != maxLimit) {
+            decrease(THROTTLED_DECREASE, "throttling");
+        }
+    }
+
+    synchronized void setOnLimitIncreased(Runnable onLimitIncreased) {
+        this.onLimitIncreased = onLimitIncreased;
+    }
+
+    private void decrease(double factor, String reason) {
+        long now = System.nanoTime();
+        if (lastDecreaseNanos != 0 && now - lastDecreaseNanos < DECREASE_INTERVAL_MILLIS * 1_000_000) {
+            return;
+        }
+        lastDecreaseNanos = now;
+        slowStart = false;
+        limit = Math.max(minLimit, limit * factor);
+        log.debug("Decreased upload concurrency to {} due to {}", getLimit(), reason);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("[AdaptiveConcurrency limit %d, min %d, max %d]", getLimit(), minLimit, maxLimit);
+    }
+}
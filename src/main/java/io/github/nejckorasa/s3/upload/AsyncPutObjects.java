@@ -0,0 +1,197 @@
+package io.github.nejckorasa.s3.upload;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Uploads small objects in the background with single PUT requests, so that the producer moves on while they upload, e.g. unzipping
+ * moves on to the next entry of an archive.
+ *
+ * <p> Objects are uploaded from their part buffers, without copying, on a queue of the shared {@link S3UploadScheduler}. Buffers are
+ * held until uploaded, so they stay charged to the {@link MemoryBudget} of their pool. Capacity of buffers in flight is limited,
+ * {@link #submit(String, S3MultipartUpload, PartBuffer)} blocks while the limit is used up. Failures are thrown by {@link #await()}, which is called once all objects are submitted.
+ *
+ * <p> Objects with the same key, e.g. of entries with duplicate names, are uploaded one after another in the order submitted, so the
+ * last one submitted is the one kept, see {@link #awaitUploaded(String)}.
+ *
+ * <p> Meant for objects of a single archive, thread-safe.
+ */
+public class AsyncPutObjects {
+
+    private static final int QUEUE_SIZE = 1000;
+
+    private final S3UploadScheduler.Queue queue;
+    private final MemoryBudget inFlightBytes;
+    private final List<CompletableFuture<Void>> uploads = new ArrayList<>();
+
+    /**
+     * Last upload submitted with the key, until passed to {@link #whenUploaded(String, Runnable)}
+     */
+    private final Map<String, CompletableFuture<Void>> uploadsByKey = new ConcurrentHashMap<>();
+
+    /**
+     * Upload with the key that is not done yet, at most one per key
+     */
+    private final Map<String, CompletableFuture<Void>> pendingUploadsByKey = new ConcurrentHashMap<>();
+
+    /**
+     * @param scheduler        scheduler to upload on, objects are uploaded with up to its max concurrency
+     * @param maxInFlightBytes maximum capacity of buffers of objects submitted and not yet uploaded
+     */
+    public AsyncPutObjects(S3UploadScheduler scheduler, long maxInFlightBytes) {
+        this.queue = scheduler.newQueue(scheduler.getConcurrency().getMaxLimit(), QUEUE_SIZE);
+        this.inFlightBytes = new MemoryBudget(maxInFlightBytes);
+    }
+
+    /**
+     * @return true if an object in a buffer of the capacity can be submitted
+     */
+    public boolean canSubmit(long bytes) {
+        return bytes <= inFlightBytes.getLimitBytes();
+    }
+
+    /**
+     * Submits the buffer to be uploaded as the whole object, blocks while the in-flight bytes limit is used up or an earlier object with
+     * the same key is uploading. Buffer is released once the object is uploaded, the upload fails or is cancelled.
+     *
+     * @param key    key of the object, see {@link #whenUploaded(String, Runnable)}
+     * @param upload upload of the object, not initialized
+     * @throws RejectedExecutionException if interrupted while waiting or if the scheduler is shut down
+     */
+    public void submit(String key, S3MultipartUpload upload, PartBuffer partBuffer) {
+        int bytes = partBuffer.capacity();
+        try {
+            awaitUploaded(key);
+            inFlightBytes.acquire(bytes);
+        } catch (RuntimeException e) {
+            partBuffer.release();
+            throw e;
+        }
+
+        var uploaded = new CompletableFuture<Void>();
+        synchronized (uploads) {
+            uploads.add(uploaded);
+        }
+        uploadsByKey.put(key, uploaded);
+        pendingUploadsByKey.put(key, uploaded);
+        uploaded.whenComplete((result, t) -> pendingUploadsByKey.remove(key, uploaded));
+        try {
+            queue.submit(() -> {
+                try {
+                    // releases the buffer
+                    upload.putObject(partBuffer);
+                    uploaded.complete(null);
+                } catch (Throwable t) {
+                    uploaded.completeExceptionally(t);
+                }
+                return null;
+            }, () -> {
+                inFlightBytes.release(bytes);
+                if (!uploaded.isDone()) {
+                    // cancelled before it ran
+                    partBuffer.release();
+                    uploaded.completeExceptionally(new CancellationException("Upload of " + key + " was cancelled"));
+                }
+            });
+        } catch (RuntimeException e) {
+            inFlightBytes.release(bytes);
+            partBuffer.release();
+            uploaded.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Waits until the object with the key is uploaded or has failed, returns right away if none is uploading. Called before an object
+     * with the key is uploaded in any other way, so that the earlier upload does not overwrite it. Failures are thrown by {@link #await()}.
+     *
+     * @throws RejectedExecutionException if interrupted while waiting
+     */
+    public void awaitUploaded(String key) {
+        var pending = pendingUploadsByKey.get(key);
+        if (pending == null) {
+            return;
+        }
+        try {
+            pending.get();
+        } catch (ExecutionException | CancellationException e) {
+            // thrown by await()
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for upload of " + key, e);
+        }
+    }
+
+    /**
+     * Runs the action once the object last submitted with the key is uploaded, right away if it was not submitted. Failures of the action
+     * are thrown by {@link #await()}.
+     */
+    public void whenUploaded(String key, Runnable action) {
+        var uploaded = uploadsByKey.remove(key);
+        if (uploaded == null) {
+            action.run();
+            return;
+        }
+        var actionDone = uploaded.thenRun(action);
+        synchronized (uploads) {
+            uploads.add(actionDone);
+        }
+    }
+
+    /**
+     * Waits for all submitted objects to be uploaded
+     *
+     * @throws S3MultipartUploadException if any upload failed, other failures are suppressed
+     */
+    public void await() {
+        List<CompletableFuture<Void>> submitted;
+        synchronized (uploads) {
+            submitted = new ArrayList<>(uploads);
+        }
+        S3MultipartUploadException failure = null;
+        // actions run after failed uploads fail with the same cause, each cause is reported once
+        Set<Throwable> causes = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (var upload : submitted) {
+            Throwable cause;
+            try {
+                upload.get();
+                continue;
+            } catch (ExecutionException e) {
+                cause = e.getCause();
+            } catch (CancellationException e) {
+                cause = e;
+            } catch (InterruptedException e) {
+                cancel();
+                Thread.currentThread().interrupt();
+                throw new S3MultipartUploadException("Interrupted while waiting for uploads", e);
+            }
+            if (!causes.add(cause)) {
+                continue;
+            }
+            if (failure == null) {
+                failure = new S3MultipartUploadException("Failed to upload objects", cause);
+            } else {
+                failure.addSuppressed(cause);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Cancels uploads that have not started yet
+     */
+    public void cancel() {
+        queue.cancel();
+    }
+}
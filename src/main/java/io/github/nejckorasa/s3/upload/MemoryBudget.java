@@ -0,0 +1,206 @@
+package io.github.nejckorasa.s3.upload;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Byte budget shared by {@link PartBufferPool}s, caps memory used for part data across all uploads that use it.
+ *
+ * <p> Pools acquire from the budget before allocating a part buffer and release to it when a buffer is dropped, so every
+ * {@link S3MultipartUpload} acquires from the budget before a part is buffered. When the budget is used up, producers block until
+ * buffers are released. Free buffers held by idle pools are reclaimed when the budget runs short, and released once a pool is trimmed,
+ * see {@link PartBufferPool#trim()}, or garbage collected. Parts uploaded from caller's byte arrays are acquired from the budget of
+ * {@code S3MultipartUpload.Config#memoryBudget} until uploaded.
+ *
+ * <p> {@link #GLOBAL} is used by all pools by default and is unlimited until {@link #setLimitBytes(long)} is called, e.g. to fit part data
+ * of all managers in a JVM into a fixed share of the heap.
+ */
+@Slf4j
+public class MemoryBudget {
+
+    public static final long UNLIMITED = Long.MAX_VALUE;
+
+    /**
+     * Process-wide budget, used by pools unless configured otherwise
+     */
+    public static final MemoryBudget GLOBAL = new MemoryBudget(UNLIMITED);
+
+    private static final long RECLAIM_INTERVAL_MILLIS = 100;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final List<WeakReference<PartBufferPool>> pools = new CopyOnWriteArrayList<>();
+    private volatile long limitBytes;
+    private long usedBytes = 0;
+    private long peakUsedBytes = 0;
+    private int waiting = 0;
+
+    public MemoryBudget(long limitBytes) {
+        Assertions.assertOrThrow(() -> limitBytes < 1, "Limit must be positive");
+        this.limitBytes = limitBytes;
+    }
+
+    /**
+     * Changes the limit, producers waiting for budget are woken up. Lowering the limit below used bytes blocks new acquires until enough
+     * is released.
+     */
+    public void setLimitBytes(long limitBytes) {
+        Assertions.assertOrThrow(() -> limitBytes < 1, "Limit must be positive");
+        lock.lock();
+        try {
+            this.limitBytes = limitBytes;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Acquires bytes, blocks until they are available
+     *
+     * @throws RejectedExecutionException if interrupted while waiting
+     */
+    public void acquire(long bytes) {
+        Assertions.assertOrThrow(() -> bytes > limitBytes, "Requested " + bytes + " bytes exceed memory budget of " + limitBytes + " bytes");
+
+        lock.lock();
+        try {
+            waiting++;
+            while (usedBytes + bytes > limitBytes) {
+                long missingBytes = usedBytes + bytes - limitBytes;
+                lock.unlock();
+                try {
+                    reclaim(missingBytes);
+                } finally {
+                    lock.lock();
+                }
+                if (usedBytes + bytes > limitBytes) {
+                    log.debug("Waiting for {} bytes of memory budget, used {} of {} bytes", bytes, usedBytes, limitBytes);
+                    //noinspection ResultOfMethodCallIgnored
+                    released.await(RECLAIM_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                }
+            }
+            take(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for memory budget", e);
+        } finally {
+            waiting--;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Acquires bytes if they are available without waiting
+     *
+     * @return true if acquired
+     */
+    public boolean tryAcquire(long bytes) {
+        lock.lock();
+        try {
+            if (waiting > 0 || usedBytes + bytes > limitBytes) {
+                return false;
+            }
+            take(bytes);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void release(long bytes) {
+        lock.lock();
+        try {
+            usedBytes -= bytes;
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return true if any producer is waiting for budget
+     */
+    public boolean hasWaiting() {
+        lock.lock();
+        try {
+            return waiting > 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getLimitBytes() {
+        return limitBytes;
+    }
+
+    public long getUsedBytes() {
+        lock.lock();
+        try {
+            return usedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return highest number of used bytes since creation or last {@link #resetPeakUsedBytes()}
+     */
+    public long getPeakUsedBytes() {
+        lock.lock();
+        try {
+            return peakUsedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void resetPeakUsedBytes() {
+        lock.lock();
+        try {
+            peakUsedBytes = usedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void register(PartBufferPool pool) {
+        pools.add(new WeakReference<>(pool));
+    }
+
+    private void take(long bytes) {
+        usedBytes += bytes;
+        if (usedBytes > peakUsedBytes) {
+            peakUsedBytes = usedBytes;
+        }
+    }
+
+    /**
+     * Asks pools to drop free buffers, must not be called while holding the lock
+     */
+    private void reclaim(long bytes) {
+        for (var poolReference : pools) {
+            var pool = poolReference.get();
+            if (pool == null) {
+                pools.remove(poolReference);
+                continue;
+            }
+            bytes -= pool.dropFreeBuffers(bytes);
+            if (bytes <= 0) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[MemoryBudget used %d bytes of %d bytes, peak %d bytes]", getUsedBytes(), limitBytes, getPeakUsedBytes());
+    }
+}
@@ -0,0 +1,180 @@
+package io.github.nejckorasa.s3.upload;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed size buffer holding the data of a single part, acquired from a {@link PartBufferPool}.
+ *
+ * <p> Buffer is filled in place and handed to {@link S3MultipartUpload}, which releases it back to the pool once the part is uploaded.
+ * Not thread-safe, a buffer is filled by a single thread before it is handed over.
+ */
+public final class PartBuffer {
+
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
+
+    private final ByteBuffer buffer;
+    private final PartBufferPool pool;
+    private byte[] transferBuffer;
+    private boolean released = false;
+
+    PartBuffer(ByteBuffer buffer, PartBufferPool pool) {
+        this.buffer = buffer;
+        this.pool = pool;
+    }
+
+    /**
+     * Reads from input stream until the buffer is full or the stream ends
+     *
+     * @param inputStream stream to read from
+     * @return true if the buffer is full, false if the stream ended
+     */
+    public boolean fill(InputStream inputStream) throws IOException {
+        while (buffer.hasRemaining()) {
+            int bytesRead;
+            if (buffer.hasArray()) {
+                bytesRead = inputStream.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+                if (bytesRead > 0) {
+                    buffer.position(buffer.position() + bytesRead);
+                }
+            } else {
+                byte[] transfer = transferBuffer();
+                bytesRead = inputStream.read(transfer, 0, Math.min(transfer.length, buffer.remaining()));
+                if (bytesRead > 0) {
+                    buffer.put(transfer, 0, bytesRead);
+                }
+            }
+            if (bytesRead == -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes as many bytes as fit in the buffer
+     *
+     * @return number of bytes written
+     */
+    public int write(byte[] bytes, int offset, int length) {
+        int written = Math.min(length, buffer.remaining());
+        buffer.put(bytes, offset, written);
+        return written;
+    }
+
+    /**
+     * Writes a single byte, buffer must not be full
+     */
+    public void write(int b) {
+        buffer.put((byte) b);
+    }
+
+    public boolean isFull() {
+        return !buffer.hasRemaining();
+    }
+
+    /**
+     * @return number of bytes written to the buffer
+     */
+    public int size() {
+        return buffer.position();
+    }
+
+    public int capacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * @return new stream reading the written bytes, supports mark and reset
+     */
+    public InputStream inputStream() {
+        if (buffer.hasArray()) {
+            return new ByteArrayInputStream(buffer.array(), buffer.arrayOffset(), buffer.position());
+        }
+        return new ByteBufferInputStream(buffer.duplicate().flip());
+    }
+
+    /**
+     * @return copy of the written bytes
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = new byte[buffer.position()];
+        buffer.duplicate().flip().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Returns the buffer to its pool. Must be called once by the current owner, further releases before the buffer is acquired again
+     * are ignored.
+     */
+    public void release() {
+        synchronized (this) {
+            if (released) {
+                return;
+            }
+            released = true;
+        }
+        pool.release(this);
+    }
+
+    void reset() {
+        buffer.clear();
+        released = false;
+    }
+
+    private byte[] transferBuffer() {
+        if (transferBuffer == null) {
+            transferBuffer = new byte[TRANSFER_BUFFER_SIZE];
+        }
+        return transferBuffer;
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+            this.buffer.mark();
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int bytesRead = Math.min(len, buffer.remaining());
+            buffer.get(b, off, bytesRead);
+            return bytesRead;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            buffer.mark();
+        }
+
+        @Override
+        public synchronized void reset() {
+            buffer.reset();
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package io.github.nejckorasa.s3.upload;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded pool of reusable {@link PartBuffer}s, heap or direct.
+ *
+ * <p> Buffers are allocated on demand and reused once released, buffers of the requested size are reused first. Total size of buffers
+ * held by the pool, both free and acquired, never exceeds {@link #maxBytes}, i.e. a pool of 10 * 20 MB caps part data at 10 parts of
+ * 20 MB. {@link #acquire(int)} blocks until enough buffers are released.
+ *
+ * <p> Allocated buffers are also acquired from a {@link MemoryBudget}, {@link MemoryBudget#GLOBAL} by default, which caps memory across
+ * pools. Free buffers are dropped rather than kept when other producers wait for the budget, and all of them with {@link #trim()}. Bytes of
+ * a pool that is garbage collected are released to the budget, so pools need not be closed.
+ *
+ * <p> A producer should hold at most one buffer it has not handed to {@link S3MultipartUpload}, buffers handed over are always released
+ * once their part is uploaded, which guarantees progress.
+ */
+@Slf4j
+public class PartBufferPool {
+
+    public static final long UNBOUNDED = Long.MAX_VALUE;
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private final long maxBytes;
+    private final boolean direct;
+    private final MemoryBudget memoryBudget;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition released = lock.newCondition();
+    private final Map<Integer, ArrayDeque<PartBuffer>> freeBuffers = new HashMap<>();
+    private long allocatedBytes = 0;
+    private long freeBytes = 0;
+
+    /**
+     * Bytes acquired from the memory budget and not yet released, shared with the cleaner of the pool
+     */
+    private final AtomicLong chargedBytes = new AtomicLong();
+
+    /**
+     * Creates an unbounded heap pool, buffers are still reused
+     */
+    public PartBufferPool() {
+        this(UNBOUNDED, false);
+    }
+
+    /**
+     * @param maxBytes maximum total size of buffers
+     * @param direct   allocate direct buffers outside of heap
+     */
+    public PartBufferPool(long maxBytes, boolean direct) {
+        this(maxBytes, direct, MemoryBudget.GLOBAL);
+    }
+
+    /**
+     * @param maxBytes     maximum total size of buffers
+     * @param direct       allocate direct buffers outside of heap
+     * @param memoryBudget budget shared with other pools
+     */
+    public PartBufferPool(long maxBytes, boolean direct, MemoryBudget memoryBudget) {
+        Assertions.assertOrThrow(() -> maxBytes < 1, "Max bytes must be positive");
+        this.maxBytes = maxBytes;
+        this.direct = direct;
+        this.memoryBudget = memoryBudget;
+        memoryBudget.register(this);
+
+        // must not reference the pool, or it is never cleaned
+        var chargedBytes = this.chargedBytes;
+        CLEANER.register(this, () -> memoryBudget.release(chargedBytes.getAndSet(0)));
+    }
+
+    /**
+     * Acquires a buffer, blocks until there is enough capacity
+     *
+     * @param size buffer size in bytes
+     * @return empty buffer with given capacity
+     * @throws RejectedExecutionException if interrupted while waiting
+     */
+    public PartBuffer acquire(int size) {
+        Assertions.assertOrThrow(() -> size > maxBytes, "Buffer size " + size + " exceeds pool size " + maxBytes);
+
+        lock.lock();
+        try {
+            while (true) {
+                var buffers = freeBuffers.get(size);
+                if (buffers != null && !buffers.isEmpty()) {
+                    freeBytes -= size;
+                    return buffers.poll();
+                }
+                if (allocatedBytes + size > maxBytes) {
+                    dropFreeBuffersLocked(allocatedBytes + size - maxBytes);
+                }
+                if (allocatedBytes + size <= maxBytes) {
+                    return allocate(size);
+                }
+                released.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for a part buffer", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Allocates a new buffer within the memory budget, waits for the budget without holding the lock
+     */
+    private PartBuffer allocate(int size) {
+        allocatedBytes += size;
+        if (!tryCharge(size)) {
+            dropFreeBuffersLocked(size);
+            if (!tryCharge(size)) {
+                lock.unlock();
+                try {
+                    memoryBudget.acquire(size);
+                    chargedBytes.addAndGet(size);
+                } catch (RuntimeException e) {
+                    lock.lock();
+                    allocatedBytes -= size;
+                    released.signalAll();
+                    throw e;
+                }
+                lock.lock();
+            }
+        }
+        return new PartBuffer(direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size), this);
+    }
+
+    void release(PartBuffer partBuffer) {
+        lock.lock();
+        try {
+            int size = partBuffer.capacity();
+            if (memoryBudget.hasWaiting()) {
+                // other producers need the budget more than this pool needs a free buffer
+                allocatedBytes -= size;
+                discharge(size);
+            } else {
+                partBuffer.reset();
+                freeBuffers.computeIfAbsent(size, key -> new ArrayDeque<>()).add(partBuffer);
+                freeBytes += size;
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops all free buffers, releasing them to the memory budget, e.g. once the pool is idle. Buffers are allocated again on demand.
+     *
+     * @return number of bytes dropped
+     */
+    public long trim() {
+        long droppedBytes = dropFreeBuffers(Long.MAX_VALUE);
+        if (droppedBytes > 0) {
+            log.debug("Trimmed {} bytes of free part buffers", droppedBytes);
+        }
+        return droppedBytes;
+    }
+
+    /**
+     * Drops free buffers, releasing them to the memory budget
+     *
+     * @param bytes number of bytes to drop, at least
+     * @return number of bytes dropped
+     */
+    long dropFreeBuffers(long bytes) {
+        lock.lock();
+        try {
+            return dropFreeBuffersLocked(bytes);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long dropFreeBuffersLocked(long bytes) {
+        long droppedBytes = 0;
+        var iterator = freeBuffers.values().iterator();
+        while (droppedBytes < bytes && iterator.hasNext()) {
+            var buffers = iterator.next();
+            while (droppedBytes < bytes && !buffers.isEmpty()) {
+                int size = buffers.poll().capacity();
+                allocatedBytes -= size;
+                freeBytes -= size;
+                droppedBytes += size;
+            }
+        }
+        if (droppedBytes > 0) {
+            discharge(droppedBytes);
+        }
+        return droppedBytes;
+    }
+
+    private boolean tryCharge(int size) {
+        if (memoryBudget.tryAcquire(size)) {
+            chargedBytes.addAndGet(size);
+            return true;
+        }
+        return false;
+    }
+
+    private void discharge(long bytes) {
+        chargedBytes.addAndGet(-bytes);
+        memoryBudget.release(bytes);
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public MemoryBudget getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * @return total size of buffers held by the pool, both free and acquired
+     */
+    public long getAllocatedBytes() {
+        lock.lock();
+        try {
+            return allocatedBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return total size of acquired buffers
+     */
+    public long getAcquiredBytes() {
+        lock.lock();
+        try {
+            return allocatedBytes - freeBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.nejckorasa.s3.upload;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.With;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hedging of slow part uploads, cuts the tail latency of completing a multipart upload.
+ *
+ * <p> Latencies of uploaded parts are recorded. When an upload completes and a part is still running past the {@link #percentile} of
+ * recent latencies, but at least {@link #minDelayMillis}, the part is uploaded again from its retained data under the same part number
+ * and whichever upload finishes first is used. Both uploads carry the same data, so they produce the same ETag, unless the upload is
+ * encrypted with SSE-KMS or SSE-C. Hedging is therefore not used for uploads the initiate response reports as encrypted with a key,
+ * including default encryption of the bucket, a losing attempt finishing last would replace the part the ETag was taken from.
+ *
+ * <p> Latencies are shared by all uploads configured with the same instance, a copy created with {@code with*} methods starts empty.
+ * Thread-safe.
+ */
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class PartHedging {
+
+    private static final int MAX_SAMPLES = 1000;
+
+    /**
+     * Percentile of recent part latencies after which a part is hedged
+     */
+    @With
+    private double percentile = 0.95;
+
+    /**
+     * Number of recorded latencies needed before parts are hedged
+     */
+    @With
+    private int minSamples = 20;
+
+    /**
+     * Minimum time a part runs before it is hedged
+     */
+    @With
+    private long minDelayMillis = 200;
+
+    private final long[] latencies = new long[MAX_SAMPLES];
+
+    private final AtomicLong sampleCount = new AtomicLong();
+
+    void recordLatency(long latencyNanos) {
+        synchronized (latencies) {
+            latencies[(int) (sampleCount.getAndIncrement() % MAX_SAMPLES)] = latencyNanos;
+        }
+    }
+
+    /**
+     * @return time after which a running part is hedged, or -1 when not enough latencies are recorded
+     */
+    long delayNanos() {
+        long[] samples;
+        synchronized (latencies) {
+            long count = sampleCount.get();
+            if (count < minSamples || count == 0) {
+                return -1;
+            }
+            samples = Arrays.copyOf(latencies, (int) Math.min(count, MAX_SAMPLES));
+        }
+        Arrays.sort(samples);
+        int index = Math.max(0, (int) Math.ceil(percentile * samples.length) - 1);
+        return Math.max(minDelayMillis * 1_000_000, samples[index]);
+    }
+}
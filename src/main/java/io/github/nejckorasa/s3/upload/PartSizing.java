@@ -0,0 +1,78 @@
+package io.github.nejckorasa.s3.upload;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.With;
+
+import static com.amazonaws.services.s3.internal.Constants.MB;
+import static io.github.nejckorasa.s3.upload.S3MultipartUpload.MAX_UPLOAD_NUMBER;
+
+/**
+ * Chooses the size of each part of an upload from the size of the object, so that large objects fit into {@link
+ * S3MultipartUpload#MAX_UPLOAD_NUMBER} parts and small objects do not hold buffers of a whole part.
+ *
+ * <p> When the object size is known, e.g. from the zip entry or the central directory, objects smaller than the preferred part size are
+ * buffered in a single buffer rounded up to a power of two, and larger objects are split into parts of the preferred size, or larger
+ * ones if needed to stay within the part limit. When the size is unknown, the part size doubles every {@link #partsPerStep} parts.
+ *
+ * <p> Part size never exceeds {@link #maxPartBytes}, which caps memory held by a single part.
+ */
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class PartSizing {
+
+    public static final PartSizing DEFAULT = new PartSizing();
+
+    static final int MIN_BUFFER_BYTES = 64 * 1024;
+
+    /**
+     * Maximum size of a single part in bytes
+     */
+    @With
+    private int maxPartBytes = 256 * MB;
+
+    /**
+     * Number of parts after which the part size doubles, when the object size is unknown
+     */
+    @With
+    private int partsPerStep = 1000;
+
+    public int getMaxPartBytes() {
+        return maxPartBytes;
+    }
+
+    /**
+     * @param objectSize         size of the object in bytes, or a negative value if unknown
+     * @param partNumber         number of the part, starting at 1
+     * @param preferredPartBytes part size used unless the object is too small or too large for it
+     * @return size of the part buffer in bytes
+     * @throws IllegalStateException if the object does not fit into the part limit
+     */
+    public int partBytes(long objectSize, int partNumber, int preferredPartBytes) {
+        int preferred = Math.min(preferredPartBytes, maxPartBytes);
+        if (objectSize < 0) {
+            long grownBytes = (long) preferred << Math.min((partNumber - 1) / partsPerStep, 30);
+            return (int) Math.min(grownBytes, maxPartBytes);
+        }
+        if (objectSize < preferred) {
+            return partNumber == 1 ? smallBufferBytes(objectSize, preferred) : preferred;
+        }
+        long minPartBytes = roundUpToMb((objectSize + MAX_UPLOAD_NUMBER - 1) / MAX_UPLOAD_NUMBER);
+        Assertions.assertOrThrow(() -> minPartBytes > maxPartBytes,
+                "Object of " + objectSize + " bytes does not fit into " + MAX_UPLOAD_NUMBER + " parts of at most " + maxPartBytes + " bytes");
+        return (int) Math.max(preferred, minPartBytes);
+    }
+
+    private static int smallBufferBytes(long objectSize, int preferred) {
+        int bytes = Math.max(MIN_BUFFER_BYTES, Integer.highestOneBit((int) Math.max(objectSize, 1)));
+        if (bytes < objectSize) {
+            bytes <<= 1;
+        }
+        return Math.min(bytes, preferred);
+    }
+
+    private static long roundUpToMb(long bytes) {
+        return (bytes + MB - 1) / MB * MB;
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.nejckorasa.s3.upload;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.SdkClientException;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+import lombok.With;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retries of a single part, applied before the whole multipart upload is aborted.
+ *
+ * <p> Throttling (429, 503 SlowDown), server errors and client errors such as connection resets are retried, other service errors
+ * are not. Backoff grows exponentially from {@link #baseBackoffMillis} up to {@link #maxBackoffMillis} and is fully jittered, so that
+ * parts throttled together do not retry together.
+ */
+@NoArgsConstructor
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class RetryPolicy {
+
+    public static final RetryPolicy DEFAULT = new RetryPolicy();
+
+    public static final RetryPolicy NONE = new RetryPolicy().withMaxRetries(0);
+
+    @With
+    private int maxRetries = 3;
+
+    @With
+    private long baseBackoffMillis = 100;
+
+    @With
+    private long maxBackoffMillis = 10_000;
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * @param t       failure of the last attempt
+     * @param retries number of retries done so far
+     * @return true if another attempt should be made
+     */
+    public boolean shouldRetry(Throwable t, int retries) {
+        if (retries >= maxRetries) {
+            return false;
+        }
+        if (t instanceof AmazonServiceException) {
+            int statusCode = ((AmazonServiceException) t).getStatusCode();
+            return statusCode == 429 || statusCode >= 500;
+        }
+        return t instanceof SdkClientException;
+    }
+
+    /**
+     * @return true if the failure is S3 asking to reduce the request rate
+     */
+    public static boolean isThrottling(Throwable t) {
+        if (t instanceof AmazonServiceException) {
+            int statusCode = ((AmazonServiceException) t).getStatusCode();
+            return statusCode == 429 || statusCode == 503;
+        }
+        return false;
+    }
+
+    /**
+     * @param retry number of the retry, starting at 1
+     * @return random backoff between 0 and the exponential backoff of the retry
+     */
+    public long backoffMillis(int retry) {
+        long exponentialBackoff = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(retry - 1, 30));
+        return ThreadLocalRandom.current().nextLong(exponentialBackoff + 1);
+    }
+}
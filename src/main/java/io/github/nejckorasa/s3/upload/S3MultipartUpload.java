@@ -2,6 +2,9 @@ package io.github.nejckorasa.s3.upload;
 
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.model.*;
+import io.github.nejckorasa.s3.client.S3Operations;
+import io.github.nejckorasa.s3.jfr.PartUploadedEvent;
+import io.github.nejckorasa.s3.jfr.UploadAbortedEvent;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
@@ -9,29 +12,34 @@ import lombok.With;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static com.amazonaws.services.s3.internal.Constants.MB;
 
 @Slf4j
-@AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class S3MultipartUpload {
 
     public static final int MAX_UPLOAD_NUMBER = 10_000;
     public static final int MIN_UPLOAD_PART_BYTES_SIZE = 5 * MB;
+    private static final long HEDGE_POLL_NANOS = 50_000_000;
     private final AtomicInteger uploadPartNumber = new AtomicInteger(0);
     private final Config config;
     private final String bucketName;
     private final String key;
-    private final ExecutorService executorService;
-    private final AmazonS3 s3Client;
+    private final S3UploadScheduler scheduler;
+    private final S3UploadScheduler.Queue queue;
+    private final boolean ownsScheduler;
+    private final S3Operations s3Client;
     private String uploadId;
+    private PartHedging partHedging;
     private volatile boolean isAborting = false;
-    private final List<Future<PartETag>> partETagFutures = new ArrayList<>();
+    private final List<PartUpload> partUploads = new ArrayList<>();
 
     @NoArgsConstructor
     @AllArgsConstructor(access = AccessLevel.PRIVATE)
@@ -59,31 +67,77 @@ public class S3MultipartUpload {
 
         @With
         private Function<InitiateMultipartUploadRequest, InitiateMultipartUploadRequest> customizeInitiateUploadRequest;
+
+        /**
+         * Customizes requests of objects uploaded with a single PUT, see {@link #putObject(PartBuffer)}
+         */
+        @With
+        private Function<PutObjectRequest, PutObjectRequest> customizePutObjectRequest;
+
+        /**
+         * Retries of a failed part before the upload is aborted, part data is kept until the part is uploaded
+         */
+        @With
+        private RetryPolicy partRetryPolicy = RetryPolicy.DEFAULT;
+
+        /**
+         * Hedging of slow parts when the upload completes, disabled when null (default). Not used for uploads encrypted with SSE-KMS or
+         * SSE-C, including default encryption of the bucket, attempts of their parts produce different ETags.
+         */
+        @With
+        private PartHedging partHedging;
+
+        /**
+         * Budget charged for parts uploaded from byte arrays and streams of the caller, until they are uploaded, defaults to
+         * {@link MemoryBudget#GLOBAL}. Parts in {@link PartBuffer}s are charged by their pool. Not charged when null.
+         */
+        @With
+        private MemoryBudget memoryBudget = MemoryBudget.GLOBAL;
     }
 
+    /**
+     * Creates an upload with its own {@link S3UploadScheduler}, configured with {@link Config#threadCount}, which is shut down once the
+     * upload completes or aborts.
+     */
     public S3MultipartUpload(String bucketName, String key, AmazonS3 s3Client, Config config) {
-        var threadPoolExecutor = new ThreadPoolExecutor(
-                config.threadCount, config.threadCount,
-                0L, TimeUnit.MILLISECONDS,
-                new ArrayBlockingQueue<>(config.queueSize));
+        this(bucketName, key, S3Operations.of(s3Client), config);
+    }
 
-        threadPoolExecutor.setRejectedExecutionHandler((r, executor) -> {
-            try {
-                if (!executor.isShutdown()) {
-                    executor.getQueue().put(r);
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new RejectedExecutionException("Executor was interrupted while the task was waiting to be put on the work queue", e);
-            }
-        });
+    /**
+     * Creates an upload with its own {@link S3UploadScheduler}, see {@link #S3MultipartUpload(String, String, AmazonS3, Config)}
+     */
+    public S3MultipartUpload(String bucketName, String key, S3Operations s3Client, Config config) {
+        this(bucketName, key, s3Client, config, new S3UploadScheduler(config.threadCount, config.awaitTerminationTimeSeconds), true);
+    }
+
+    /**
+     * Creates an upload running its parts on a shared {@link S3UploadScheduler}, or on its own if scheduler is null. At most
+     * {@link Config#threadCount} parts of this upload are uploaded at once and at most {@link Config#queueSize} wait to be uploaded.
+     */
+    public S3MultipartUpload(String bucketName, String key, AmazonS3 s3Client, Config config, S3UploadScheduler scheduler) {
+        this(bucketName, key, S3Operations.of(s3Client), config, scheduler);
+    }
+
+    /**
+     * Creates an upload running its parts on a shared {@link S3UploadScheduler}, see
+     * {@link #S3MultipartUpload(String, String, AmazonS3, Config, S3UploadScheduler)}
+     */
+    public S3MultipartUpload(String bucketName, String key, S3Operations s3Client, Config config, S3UploadScheduler scheduler) {
+        this(bucketName, key, s3Client, config,
+                scheduler != null ? scheduler : new S3UploadScheduler(config.threadCount, config.awaitTerminationTimeSeconds),
+                scheduler == null);
+    }
 
+    private S3MultipartUpload(String bucketName, String key, S3Operations s3Client, Config config, S3UploadScheduler scheduler, boolean ownsScheduler) {
         Assertions.assertOrThrow(
                 () -> config.uploadPartBytesLimit < MIN_UPLOAD_PART_BYTES_SIZE,
                 "Part size cannot be smaller than " + MIN_UPLOAD_PART_BYTES_SIZE);
 
         this.config = config;
-        this.executorService = threadPoolExecutor;
+        this.partHedging = config.partHedging;
+        this.scheduler = scheduler;
+        this.queue = scheduler.newQueue(config.threadCount, config.queueSize);
+        this.ownsScheduler = ownsScheduler;
         this.bucketName = bucketName;
         this.key = key;
         this.s3Client = s3Client;
@@ -108,94 +162,416 @@ public class S3MultipartUpload {
         }
 
         try {
-            uploadId = s3Client.initiateMultipartUpload(initRequest).getUploadId();
+            var initResult = s3Client.initiateMultipartUpload(initRequest);
+            uploadId = initResult.getUploadId();
+            if (partHedging != null && isEncryptedWithKey(initResult)) {
+                log.debug("Hedging disabled for uploadId {}, ETags of encrypted parts differ between attempts", uploadId);
+                partHedging = null;
+            }
         } catch (Throwable t) {
             log.error("Failed initialising multipart upload with uploadId {}", uploadId);
             throw abort(t);
         }
     }
 
+    /**
+     * @return true if the object can be uploaded with {@link #putObject(PartBuffer)}, which is not the case when only initiate upload
+     * requests are customized
+     */
+    public boolean canPutObject() {
+        return config.customizeInitiateUploadRequest == null || config.customizePutObjectRequest != null;
+    }
+
+    /**
+     * Uploads buffer as the whole object with a single PUT request, instead of a multipart upload, for objects smaller than a part.
+     * Upload must not be initialized. Buffer is released once uploaded.
+     */
+    public void putObject(PartBuffer partBuffer) {
+        try {
+            putObject(partBuffer.inputStream(), partBuffer.size());
+        } finally {
+            partBuffer.release();
+        }
+    }
+
+    /**
+     * Uploads bytes as the whole object with a single PUT request, see {@link #putObject(PartBuffer)}
+     */
+    public void putObject(byte[] bytes) {
+        putObject(new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    private void putObject(InputStream inputStream, int size) {
+        try {
+            Assertions.assertOrThrow(() -> uploadId != null, "Multipart upload has already been initialized");
+            Assertions.assertOrThrow(() -> !canPutObject(), "Initiate upload request is customized, put object request is not");
+
+            var metadata = new ObjectMetadata();
+            metadata.setContentLength(size);
+            if (config.contentType != null) {
+                metadata.setContentType(config.contentType);
+            }
+            var putRequest = new PutObjectRequest(bucketName, key, inputStream, metadata);
+
+            if (config.cannedAcl != null) {
+                putRequest.withCannedAcl(config.cannedAcl);
+            }
+
+            if (config.customizePutObjectRequest != null) {
+                putRequest = config.customizePutObjectRequest.apply(putRequest);
+            }
+
+            log.debug("Putting {}/{}, {} bytes", bucketName, key, size);
+            long start = System.nanoTime();
+            s3Client.putObject(putRequest);
+            scheduler.getMetrics().objectPut(size, System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            throw new S3MultipartUploadException("Failed to put " + bucketName + "/" + key, e);
+        } finally {
+            releaseScheduler();
+        }
+    }
+
+    /**
+     * Uploads bytes as the next part, each attempt of the part reads them with its own stream, so the part can be hedged. Waits for
+     * {@link Config#memoryBudget} first, bytes are charged to it until the part is uploaded.
+     */
     public void uploadPart(byte[] bytes) {
-        uploadPart(new ByteArrayInputStream(bytes));
+        submitCallerPart(() -> new ByteArrayInputStream(bytes), bytes.length, false, true);
     }
 
+    /**
+     * Uploads the stream as the next part, it is reset before each retry. A single stream cannot be read by concurrent attempts, the part
+     * is never hedged. Charged to {@link Config#memoryBudget} like {@link #uploadPart(byte[])}.
+     */
     public void uploadPart(ByteArrayInputStream inputStream) {
-        submitUploadPart(inputStream, false);
+        submitCallerPart(rewinding(inputStream), inputStream.available(), false, false);
+    }
+
+    /**
+     * Uploads buffer as the next part, buffer is released once the part is uploaded or the upload aborts
+     */
+    public void uploadPart(PartBuffer partBuffer) {
+        submitUploadPart(partBuffer::inputStream, partBuffer.size(), false, true, partBuffer::release);
     }
 
+    /**
+     * Uploads bytes as the final part and completes the upload, see {@link #uploadPart(byte[])}
+     */
     public void uploadFinalPart(byte[] bytes) {
-        uploadFinalPart(new ByteArrayInputStream(bytes));
+        uploadFinalPart(() -> submitCallerPart(() -> new ByteArrayInputStream(bytes), bytes.length, true, true));
     }
 
+    /**
+     * Uploads the stream as the final part and completes the upload, see {@link #uploadPart(ByteArrayInputStream)}
+     */
     public void uploadFinalPart(ByteArrayInputStream inputStream) {
+        uploadFinalPart(() -> submitCallerPart(rewinding(inputStream), inputStream.available(), true, false));
+    }
+
+    /**
+     * Uploads buffer as the final part and completes the upload, buffer is released once the part is uploaded or the upload aborts
+     */
+    public void uploadFinalPart(PartBuffer partBuffer) {
+        uploadFinalPart(() -> submitUploadPart(partBuffer::inputStream, partBuffer.size(), true, true, partBuffer::release));
+    }
+
+    /**
+     * @param submitPart submits the final part, upload is aborted if it fails
+     */
+    private void uploadFinalPart(Runnable submitPart) {
         try {
-            submitUploadPart(inputStream, true);
-            var partETags = waitForAllUploadParts();
-            s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+            submitPart.run();
+            completeUpload();
         } catch (Throwable t) {
             log.error("Failed to upload final part");
             throw abort(t);
         } finally {
-            shutdownAndAwaitTermination();
+            releaseScheduler();
         }
     }
 
-    private void submitUploadPart(ByteArrayInputStream inputStream, boolean finalPart) {
+    /**
+     * Copies a byte range of an existing object as the next part, data is copied within S3 and never downloaded.
+     *
+     * @param sourceBucketName bucket of the source object
+     * @param sourceKey        key of the source object
+     * @param firstByte        first byte of the range, inclusive
+     * @param lastByte         last byte of the range, inclusive
+     */
+    public void copyPart(String sourceBucketName, String sourceKey, long firstByte, long lastByte) {
         Assertions.assertNotBlank(uploadId, "uploadId has not been set");
-        Assertions.assertNotBlank(bucketName, "bucketName has not been set");
-        Assertions.assertNotBlank(key, "key has not been set");
-
-        submitTask(() -> {
-            int partNumber = incrementUploadNumber();
-            int partSize = inputStream.available();
 
-            var uploadPartRequest = new UploadPartRequest()
-                    .withBucketName(bucketName)
-                    .withKey(key)
+        var part = new PartUpload(incrementUploadNumber(), null, () -> {
+        });
+        int partNumber = part.partNumber;
+        submitPart(part, () -> withRetries(part, 0, () -> {
+            var copyPartRequest = new CopyPartRequest()
+                    .withSourceBucketName(sourceBucketName)
+                    .withSourceKey(sourceKey)
+                    .withDestinationBucketName(bucketName)
+                    .withDestinationKey(key)
                     .withUploadId(uploadId)
                     .withPartNumber(partNumber)
-                    .withPartSize(partSize)
-                    .withInputStream(inputStream);
+                    .withFirstByte(firstByte)
+                    .withLastByte(lastByte);
+
+            log.debug("Copying partNumber {}, bytes {}-{} of {}", partNumber, firstByte, lastByte, sourceKey);
+            var copyPartResult = s3Client.copyPart(copyPartRequest);
+            log.debug("Copied partNumber {}", partNumber);
+            return copyPartResult.getPartETag();
+        }));
+    }
 
-            if (finalPart) {
-                uploadPartRequest.withLastPart(true);
-            }
+    /**
+     * Waits for all submitted parts and completes the upload, use when parts were not uploaded with {@link #uploadFinalPart(byte[])}
+     */
+    public void complete() {
+        try {
+            completeUpload();
+        } catch (Throwable t) {
+            log.error("Failed to complete upload");
+            throw abort(t);
+        } finally {
+            releaseScheduler();
+        }
+    }
+
+    private void completeUpload() throws InterruptedException, ExecutionException {
+        var partETags = waitForAllUploadParts();
+        s3Client.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, key, uploadId, partETags));
+    }
+
+    /**
+     * Submits a part of data held by the caller, charged to {@link Config#memoryBudget} until the part is uploaded
+     */
+    private void submitCallerPart(Supplier<InputStream> inputStream, int partSize, boolean finalPart, boolean hedgeable) {
+        var memoryBudget = config.memoryBudget;
+        if (memoryBudget == null) {
+            submitUploadPart(inputStream, partSize, finalPart, hedgeable, () -> {
+            });
+            return;
+        }
+        memoryBudget.acquire(partSize);
+        submitUploadPart(inputStream, partSize, finalPart, hedgeable, () -> memoryBudget.release(partSize));
+    }
+
+    /**
+     * @param inputStream stream of the part data for each attempt
+     * @param hedgeable   whether attempts can run concurrently, which needs a new stream from each call of inputStream
+     */
+    private void submitUploadPart(Supplier<InputStream> inputStream, int partSize, boolean finalPart, boolean hedgeable, Runnable onUploaded) {
+        PartUpload part;
+        Callable<PartETag> attempts;
+        try {
+            Assertions.assertNotBlank(uploadId, "uploadId has not been set");
+            Assertions.assertNotBlank(bucketName, "bucketName has not been set");
+            Assertions.assertNotBlank(key, "key has not been set");
+
+            // part number is assigned on submit, parts may start uploading out of order
+            int partNumber = incrementUploadNumber();
+            Callable<PartETag> request = () -> {
+                // each attempt reads the part data from the start, data is released only once the part is uploaded
+                var uploadPartRequest = new UploadPartRequest()
+                        .withBucketName(bucketName)
+                        .withKey(key)
+                        .withUploadId(uploadId)
+                        .withPartNumber(partNumber)
+                        .withPartSize(partSize)
+                        .withInputStream(inputStream.get());
+
+                if (finalPart) {
+                    uploadPartRequest.withLastPart(true);
+                }
 
-            try {
                 log.debug("Submitting partNumber {}, with partSize {}", partNumber, partSize);
                 var uploadPartResult = s3Client.uploadPart(uploadPartRequest);
                 log.debug("Submitted partNumber {}", partNumber);
                 return uploadPartResult.getPartETag();
+            };
+            part = new PartUpload(partNumber, hedgeable ? request : null, onUploaded);
+            attempts = () -> withRetries(part, partSize, request);
+        } catch (RuntimeException e) {
+            // task was never submitted
+            onUploaded.run();
+            throw e;
+        }
+        submitPart(part, attempts);
+    }
+
+    /**
+     * Runs a part request, retries it as configured by {@link Config#partRetryPolicy} and aborts the upload once retries run out.
+     * Latency and throttling are reported to the scheduler's {@link AdaptiveConcurrency}, latency and retries to its metrics.
+     *
+     * @param partBytes size of uploaded data, latency is not reported when 0
+     */
+    private PartETag withRetries(PartUpload part, long partBytes, Callable<PartETag> request) {
+        int partNumber = part.partNumber;
+        var retryPolicy = config.partRetryPolicy;
+        var concurrency = scheduler.getConcurrency();
+        var metrics = scheduler.getMetrics();
+        int retries = 0;
+        while (true) {
+            try {
+                var event = new PartUploadedEvent();
+                event.begin();
+                long start = System.nanoTime();
+                var partETag = request.call();
+                event.end();
+                if (event.shouldCommit()) {
+                    event.bucketName = bucketName;
+                    event.key = key;
+                    event.uploadId = uploadId;
+                    event.partNumber = partNumber;
+                    event.bytes = partBytes;
+                    event.retries = retries;
+                    event.commit();
+                }
+                if (partBytes > 0) {
+                    long latencyNanos = System.nanoTime() - start;
+                    concurrency.onSuccess(latencyNanos, partBytes);
+                    metrics.partUploaded(partBytes, latencyNanos);
+                }
+                return partETag;
             } catch (Throwable t) {
-                throw abort(t);
+                if (RetryPolicy.isThrottling(t)) {
+                    concurrency.onThrottled();
+                }
+                if (part.uploadedETag.isDone() && !part.uploadedETag.isCompletedExceptionally()) {
+                    // hedged upload of the part finished first
+                    return part.uploadedETag.join();
+                }
+                if (isAborting || !retryPolicy.shouldRetry(t, retries)) {
+                    throw abort(t);
+                }
+                retries++;
+                metrics.partRetried(RetryPolicy.isThrottling(t));
+                long backoffMillis = retryPolicy.backoffMillis(retries);
+                log.warn("{}: partNumber {} failed, retrying in {} ms, retry {} of {}: {}",
+                        this, partNumber, backoffMillis, retries, retryPolicy.getMaxRetries(), t.toString());
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException e) {
+                    throw abort(e);
+                }
             }
-        });
+        }
+    }
+
+    /**
+     * @return the same stream reset to its mark, for attempts that run one after another
+     */
+    private static Supplier<InputStream> rewinding(ByteArrayInputStream inputStream) {
+        return () -> {
+            inputStream.reset();
+            return inputStream;
+        };
     }
 
-    private void submitTask(Callable<PartETag> task) {
-        var partETagFuture = executorService.submit(task);
-        partETagFutures.add(partETagFuture);
+    /**
+     * Submits the part's task, the part is released once the task completes or is cancelled, before its result is visible
+     */
+    private void submitPart(PartUpload part, Callable<PartETag> attempts) {
+        try {
+            part.future = queue.submit(() -> {
+                long start = System.nanoTime();
+                part.startNanos = start;
+                try {
+                    var partETag = attempts.call();
+                    if (partHedging != null && part.request != null) {
+                        partHedging.recordLatency(System.nanoTime() - start);
+                    }
+                    part.uploadedETag.complete(partETag);
+                    return partETag;
+                } catch (Throwable t) {
+                    part.uploadedETag.completeExceptionally(t);
+                    throw t;
+                }
+            }, () -> {
+                part.release();
+                part.uploadedETag.completeExceptionally(new CancellationException("partNumber " + part.partNumber + " was cancelled"));
+            });
+        } catch (RuntimeException e) {
+            // task was never submitted
+            part.release();
+            throw e;
+        }
+        partUploads.add(part);
+    }
+
+    /**
+     * Uploads a running part once more, from its retained data, the first upload to finish provides the part's ETag
+     */
+    private void hedge(PartUpload part) {
+        part.hedged = true;
+        part.references.incrementAndGet();
+        log.info("{}: partNumber {} running for {} ms, hedging", this, part.partNumber, (System.nanoTime() - part.startNanos) / 1_000_000);
+        try {
+            queue.submit(() -> {
+                try {
+                    part.uploadedETag.complete(part.request.call());
+                    log.debug("Hedged partNumber {} uploaded", part.partNumber);
+                } catch (Exception e) {
+                    log.warn("{}: hedged partNumber {} failed: {}", this, part.partNumber, e.toString());
+                }
+                return null;
+            }, part::release);
+        } catch (RejectedExecutionException e) {
+            part.release();
+        }
     }
 
     private List<PartETag> waitForAllUploadParts() throws InterruptedException, ExecutionException {
+        long hedgeDelayNanos = partHedging == null ? -1 : partHedging.delayNanos();
         List<PartETag> partETags = new ArrayList<>();
-        for (var partETagFuture : partETagFutures) {
-            partETags.add(partETagFuture.get());
+        for (var part : partUploads) {
+            if (partHedging == null) {
+                partETags.add(part.future.get());
+            } else if (hedgeDelayNanos < 0 || part.request == null) {
+                partETags.add(part.uploadedETag.get());
+            } else {
+                partETags.add(waitForHedgedPart(part, hedgeDelayNanos));
+            }
         }
         return partETags;
     }
 
-    private void shutdownAndAwaitTermination() {
-        log.debug("Shutting down executor service for uploadId {}", uploadId);
-        executorService.shutdown();
-        try {
-            //noinspection ResultOfMethodCallIgnored
-            executorService.awaitTermination(config.awaitTerminationTimeSeconds, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            log.error("Interrupted while awaiting executor service shutdown");
-            Thread.currentThread().interrupt();
+    private PartETag waitForHedgedPart(PartUpload part, long hedgeDelayNanos) throws InterruptedException, ExecutionException {
+        while (true) {
+            if (part.hedged || part.uploadedETag.isDone()) {
+                return part.uploadedETag.get();
+            }
+            long waitNanos = HEDGE_POLL_NANOS;
+            if (part.startNanos != 0) {
+                long runningNanos = System.nanoTime() - part.startNanos;
+                if (runningNanos >= hedgeDelayNanos) {
+                    hedge(part);
+                } else {
+                    waitNanos = hedgeDelayNanos - runningNanos;
+                }
+            }
+            try {
+                return part.uploadedETag.get(waitNanos, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                // check again whether the part should be hedged
+            }
+        }
+    }
+
+    /**
+     * @return true if parts are encrypted with SSE-KMS or SSE-C, the ETag of a part then differs on every upload of its data, unlike with
+     * SSE-S3
+     */
+    private static boolean isEncryptedWithKey(InitiateMultipartUploadResult initResult) {
+        return initResult.getSSECustomerAlgorithm() != null
+                || (initResult.getSSEAlgorithm() != null && initResult.getSSEAlgorithm().startsWith("aws:kms"));
+    }
+
+    private void releaseScheduler() {
+        if (ownsScheduler) {
+            log.debug("Shutting down upload scheduler for uploadId {}", uploadId);
+            scheduler.close();
         }
-        executorService.shutdownNow();
     }
 
     private int incrementUploadNumber() {
@@ -211,7 +587,7 @@ public class S3MultipartUpload {
             log.error("Aborting {} due to error: {}", this, t);
         }
 
-        abort();
+        abort(t.toString());
 
         if (t instanceof Error) {
             throw (Error) t;
@@ -224,19 +600,87 @@ public class S3MultipartUpload {
     }
 
     public void abort() {
+        abort((String) null);
+    }
+
+    /**
+     * @param cause cause of the abort, reported with {@link UploadAbortedEvent}, null if unknown
+     */
+    private void abort(String cause) {
         synchronized (this) {
             if (isAborting) {
                 return;
             }
             isAborting = true;
+            var event = new UploadAbortedEvent();
+            event.begin();
+            queue.cancel();
             if (uploadId != null) {
                 log.debug("{}: Aborting", this);
-                s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+                // requests of an interrupted thread fail, e.g. of a cancelled unzip, the flag is restored once the upload is aborted
+                boolean interrupted = Thread.interrupted();
+                try {
+                    s3Client.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, key, uploadId));
+                } finally {
+                    if (interrupted) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
                 log.info("{}: Aborted", this);
             }
+            event.end();
+            if (event.shouldCommit()) {
+                event.bucketName = bucketName;
+                event.key = key;
+                event.uploadId = uploadId;
+                event.parts = uploadPartNumber.get();
+                event.cause = cause;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Single part of the upload, with the data retained until all of its uploads are done
+     */
+    private static final class PartUpload {
+        private final int partNumber;
+        private final Callable<PartETag> request;
+        private final Runnable onUploaded;
+        private final AtomicInteger references = new AtomicInteger(1);
+        private final CompletableFuture<PartETag> uploadedETag = new CompletableFuture<>();
+        private Future<PartETag> future;
+        private volatile long startNanos = 0;
+        private boolean hedged = false;
+
+        /**
+         * @param request    single upload of the part, used for hedging, null if the part cannot be hedged
+         * @param onUploaded called once all uploads of the part are done
+         */
+        private PartUpload(int partNumber, Callable<PartETag> request, Runnable onUploaded) {
+            this.partNumber = partNumber;
+            this.request = request;
+            this.onUploaded = onUploaded;
+        }
+
+        private void release() {
+            if (references.decrementAndGet() == 0) {
+                onUploaded.run();
+            }
         }
     }
 
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return id of the upload, null until initialized
+     */
+    public String getUploadId() {
+        return uploadId;
+    }
+
     @Override
     public String toString() {
         return String.format("[S3MultipartUpload uploading to %s/%s, with uploadId %s", bucketName, key, uploadId);
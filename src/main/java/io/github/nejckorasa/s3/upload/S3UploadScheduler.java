@@ -0,0 +1,351 @@
+package io.github.nejckorasa.s3.upload;
+
+import io.github.nejckorasa.s3.metrics.UnzipMetrics;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs upload tasks of many {@link S3MultipartUpload}s on a single, bounded set of threads.
+ *
+ * <p> Each upload submits to its own {@link Queue}. Queues are served round-robin, so concurrent uploads progress fairly regardless of
+ * how fast they produce parts. A queue limits the number of tasks it runs at once and blocks submitters when it is full.
+ *
+ * <p> The number of tasks run at once, across all queues, is limited by {@link AdaptiveConcurrency}, fixed unless the scheduler is
+ * created with adaptive bounds, in which case uploads report part latency and throttling to adapt it.
+ *
+ * <p> Queue depth, time blocked on full queues and measurements of uploads are reported to the scheduler's {@link UnzipMetrics}.
+ *
+ * <p> Threads are created on demand and time out when idle, a scheduler is meant to be long-lived and shared, see
+ * {@link io.github.nejckorasa.s3.unzip.S3UnzipManager}. A scheduler created with {@link #virtualThreads} runs each task on a new virtual
+ * thread instead, so that thousands of part uploads can wait on S3 at once without a platform thread each.
+ */
+@Slf4j
+public class S3UploadScheduler implements AutoCloseable {
+
+    public static final int DEFAULT_THREAD_COUNT = 8;
+
+    private static final AtomicInteger schedulerNumber = new AtomicInteger(0);
+
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition capacityAvailable = lock.newCondition();
+    private final ArrayDeque<Queue> readyQueues = new ArrayDeque<>();
+    private final AdaptiveConcurrency concurrency;
+    private final UnzipMetrics metrics;
+    private final int awaitTerminationTimeSeconds;
+    private int running = 0;
+    private int queued = 0;
+
+    public S3UploadScheduler() {
+        this(DEFAULT_THREAD_COUNT, 2);
+    }
+
+    /**
+     * @param threadCount                 maximum number of tasks run at once, across all queues
+     * @param awaitTerminationTimeSeconds time to wait for running tasks on {@link #close()}
+     */
+    public S3UploadScheduler(int threadCount, int awaitTerminationTimeSeconds) {
+        this(AdaptiveConcurrency.fixed(threadCount), awaitTerminationTimeSeconds);
+    }
+
+    /**
+     * @param concurrency                 limit of tasks run at once, across all queues, one thread is created for each task up to its max
+     * @param awaitTerminationTimeSeconds time to wait for running tasks on {@link #close()}
+     */
+    public S3UploadScheduler(AdaptiveConcurrency concurrency, int awaitTerminationTimeSeconds) {
+        this(concurrency, awaitTerminationTimeSeconds, UnzipMetrics.NONE);
+    }
+
+    /**
+     * @param concurrency                 limit of tasks run at once, across all queues, one thread is created for each task up to its max
+     * @param awaitTerminationTimeSeconds time to wait for running tasks on {@link #close()}
+     * @param metrics                     listener of measurements of all uploads run on the scheduler
+     */
+    public S3UploadScheduler(AdaptiveConcurrency concurrency, int awaitTerminationTimeSeconds, UnzipMetrics metrics) {
+        this(newThreadPool(concurrency.getMaxLimit()), false, concurrency, awaitTerminationTimeSeconds, metrics);
+    }
+
+    private S3UploadScheduler(ExecutorService executor, boolean virtualThreads, AdaptiveConcurrency concurrency,
+                              int awaitTerminationTimeSeconds, UnzipMetrics metrics) {
+        this.executor = executor;
+        this.virtualThreads = virtualThreads;
+        this.concurrency = concurrency;
+        this.metrics = metrics;
+        this.awaitTerminationTimeSeconds = awaitTerminationTimeSeconds;
+        // new headroom needs a dispatch of its own, completions only dispatch for the slot they free
+        concurrency.setOnLimitIncreased(this::dispatch);
+    }
+
+    /**
+     * Creates a scheduler running each task on a new virtual thread, tasks run at once are limited by the concurrency alone. Requires
+     * JDK 21, on older runtimes tasks run on new platform threads, see {@link VirtualThreads}.
+     *
+     * @param concurrency                 limit of tasks run at once, across all queues
+     * @param awaitTerminationTimeSeconds time to wait for running tasks on {@link #close()}
+     * @param metrics                     listener of measurements of all uploads run on the scheduler
+     */
+    public static S3UploadScheduler virtualThreads(AdaptiveConcurrency concurrency, int awaitTerminationTimeSeconds, UnzipMetrics metrics) {
+        var executor = VirtualThreads.newThreadPerTaskExecutor("s3-upload-" + schedulerNumber.incrementAndGet() + "-");
+        return new S3UploadScheduler(executor, VirtualThreads.isSupported(), concurrency, awaitTerminationTimeSeconds, metrics);
+    }
+
+    private static ExecutorService newThreadPool(int threadCount) {
+        var threadNumber = new AtomicInteger(0);
+        var namePrefix = "s3-upload-" + schedulerNumber.incrementAndGet() + "-";
+        var executor = new ThreadPoolExecutor(
+                threadCount, threadCount,
+                60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    var thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Creates a queue for a single upload
+     *
+     * @param maxRunning maximum number of tasks of this queue run at once
+     * @param queueSize  number of tasks that can wait to run before {@link Queue#submit(Callable)} blocks
+     * @return new queue
+     */
+    public Queue newQueue(int maxRunning, int queueSize) {
+        Assertions.assertOrThrow(() -> maxRunning < 1, "Max running tasks must be at least 1");
+        return new Queue(maxRunning, maxRunning + queueSize);
+    }
+
+    /**
+     * @return maximum number of tasks run at once, one thread each
+     */
+    public int getThreadCount() {
+        return concurrency.getMaxLimit();
+    }
+
+    /**
+     * @return true if tasks run on virtual threads
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * @return limit of tasks run at once, its current value is {@link AdaptiveConcurrency#getLimit()}
+     */
+    public AdaptiveConcurrency getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * @return listener of measurements of uploads run on this scheduler, {@link UnzipMetrics#NONE} unless set
+     */
+    public UnzipMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Stops accepting tasks, waits for submitted tasks to complete up to the configured timeout and interrupts the rest
+     */
+    @Override
+    public void close() {
+        log.debug("Shutting down upload scheduler");
+        executor.shutdown();
+        try {
+            //noinspection ResultOfMethodCallIgnored
+            executor.awaitTermination(awaitTerminationTimeSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            log.error("Interrupted while awaiting upload scheduler shutdown");
+            Thread.currentThread().interrupt();
+        }
+        executor.shutdownNow();
+        cancelReadyQueues();
+    }
+
+    private void dispatch() {
+        try {
+            executor.execute(this::runNext);
+        } catch (RejectedExecutionException e) {
+            log.debug("Upload scheduler is shut down, cancelling waiting tasks");
+            cancelReadyQueues();
+        }
+    }
+
+    private void cancelReadyQueues() {
+        lock.lock();
+        try {
+            // tasks that never get to run would otherwise leave their uploads waiting
+            readyQueues.forEach(queue -> {
+                queue.tasks.forEach(task -> task.cancel(false));
+                queued -= queue.tasks.size();
+                queue.tasks.clear();
+                queue.ready = false;
+            });
+            readyQueues.clear();
+            metrics.uploadQueueChanged(queued, running);
+            capacityAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Runs a single task of the next ready queue, if any. Dispatched once for each submitted and each completed task, so that a ready
+     * task always has a dispatch pending.
+     */
+    private void runNext() {
+        Queue queue;
+        FutureTask<?> task;
+
+        lock.lock();
+        try {
+            if (running >= concurrency.getLimit()) {
+                // the task that completes next dispatches again
+                return;
+            }
+            queue = readyQueues.poll();
+            if (queue == null) {
+                return;
+            }
+            queue.ready = false;
+            task = queue.tasks.poll();
+            queued--;
+            queue.running++;
+            running++;
+            queue.markIfReady();
+            metrics.uploadQueueChanged(queued, running);
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            task.run();
+        } finally {
+            lock.lock();
+            try {
+                queue.running--;
+                running--;
+                queue.markIfReady();
+                metrics.uploadQueueChanged(queued, running);
+                capacityAvailable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            dispatch();
+        }
+    }
+
+    /**
+     * Tasks of a single upload
+     */
+    public final class Queue {
+        private final ArrayDeque<FutureTask<?>> tasks = new ArrayDeque<>();
+        private final int maxRunning;
+        private final int capacity;
+        private int running = 0;
+        private boolean ready = false;
+
+        private Queue(int maxRunning, int capacity) {
+            this.maxRunning = maxRunning;
+            this.capacity = capacity;
+        }
+
+        /**
+         * Submits a task, blocks while the queue is full
+         *
+         * @param task task to run
+         * @return future of the task result
+         * @throws RejectedExecutionException if interrupted while waiting or if scheduler is shut down
+         */
+        public <T> Future<T> submit(Callable<T> task) {
+            return submit(task, () -> {
+            });
+        }
+
+        /**
+         * Submits a task, blocks while the queue is full
+         *
+         * @param task   task to run
+         * @param onDone called once the task completes, fails or is cancelled
+         * @return future of the task result
+         * @throws RejectedExecutionException if interrupted while waiting or if scheduler is shut down, onDone is not called
+         */
+        public <T> Future<T> submit(Callable<T> task, Runnable onDone) {
+            // onDone runs before the result is set when the task runs, so that it is visible to whoever waits on the future
+            Callable<T> taskWithOnDone = () -> {
+                try {
+                    return task.call();
+                } finally {
+                    onDone.run();
+                }
+            };
+            var futureTask = new FutureTask<>(taskWithOnDone) {
+                @Override
+                protected void done() {
+                    if (isCancelled()) {
+                        onDone.run();
+                    }
+                }
+            };
+            long blockedSince = 0;
+            lock.lock();
+            try {
+                while (tasks.size() + running >= capacity) {
+                    if (blockedSince == 0) {
+                        blockedSince = System.nanoTime();
+                    }
+                    capacityAvailable.await();
+                }
+                if (blockedSince != 0) {
+                    metrics.uploadSubmitBlocked(System.nanoTime() - blockedSince);
+                }
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("Upload scheduler is shut down");
+                }
+                tasks.add(futureTask);
+                queued++;
+                markIfReady();
+                metrics.uploadQueueChanged(queued, S3UploadScheduler.this.running);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while the task was waiting to be put on the upload queue", e);
+            } finally {
+                lock.unlock();
+            }
+            dispatch();
+            return futureTask;
+        }
+
+        /**
+         * Cancels tasks that have not started running yet
+         */
+        public void cancel() {
+            lock.lock();
+            try {
+                tasks.forEach(task -> task.cancel(false));
+                queued -= tasks.size();
+                tasks.clear();
+                readyQueues.remove(this);
+                ready = false;
+                metrics.uploadQueueChanged(queued, S3UploadScheduler.this.running);
+                capacityAvailable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void markIfReady() {
+            if (!ready && !tasks.isEmpty() && running < maxRunning) {
+                ready = true;
+                readyQueues.add(this);
+            }
+        }
+    }
+}
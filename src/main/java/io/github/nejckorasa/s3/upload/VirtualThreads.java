@@ -0,0 +1,82 @@
+package io.github.nejckorasa.s3.upload;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates executors running each task on a new virtual thread, on runtimes that support them (JDK 21+). The library targets Java 11,
+ * virtual threads are detected and created with reflection.
+ *
+ * <p> On older runtimes executors fall back to new daemon platform threads, cached while idle, so that code relying on a thread per task
+ * runs unchanged, only less cheaply. Either way concurrency is not limited by the executor, callers limit it, e.g. with semaphores.
+ */
+@Slf4j
+public final class VirtualThreads {
+
+    private static final Method OF_VIRTUAL = method(Thread.class, "ofVirtual");
+    private static final Method NAME = method(builderClass(), "name", String.class, long.class);
+    private static final Method FACTORY = method(builderClass(), "factory");
+    private static final Method NEW_THREAD_PER_TASK_EXECUTOR = method(Executors.class, "newThreadPerTaskExecutor", ThreadFactory.class);
+
+    // virtual threads are a preview feature of JDK 19 and 20
+    private static final boolean SUPPORTED = Runtime.version().feature() >= 21
+            && OF_VIRTUAL != null && NAME != null && FACTORY != null && NEW_THREAD_PER_TASK_EXECUTOR != null;
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @return true if the runtime supports virtual threads
+     */
+    public static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    /**
+     * @param namePrefix prefix of thread names, followed by a thread number
+     * @return executor starting a new virtual thread for each task, or a new platform thread if virtual threads are not supported
+     */
+    public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+        if (SUPPORTED) {
+            try {
+                var builder = NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix, 1L);
+                var threadFactory = (ThreadFactory) FACTORY.invoke(builder);
+                return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+            } catch (ReflectiveOperationException e) {
+                log.warn("Failed to create virtual thread executor, using platform threads", e);
+            }
+        } else {
+            log.debug("Virtual threads are not supported by Java {}, using platform threads", Runtime.version());
+        }
+        var threadNumber = new AtomicInteger(0);
+        return Executors.newCachedThreadPool(runnable -> {
+            var thread = new Thread(runnable, namePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Class<?> builderClass() {
+        try {
+            return Class.forName("java.lang.Thread$Builder");
+        } catch (ClassNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static Method method(Class<?> type, String name, Class<?>... parameterTypes) {
+        if (type == null) {
+            return null;
+        }
+        try {
+            return type.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package io.github.nejckorasa.s3;
+
+import com.amazonaws.services.s3.model.PutObjectRequest;
+import com.amazonaws.services.s3.model.PutObjectResult;
+import io.github.nejckorasa.s3.unzip.S3UnzipManager;
+import io.github.nejckorasa.s3.unzip.UnzipResult;
+import io.github.nejckorasa.s3.unzip.strategy.NoSplitUnzipStrategy;
+import io.github.nejckorasa.s3.upload.MemoryBudget;
+import io.github.nejckorasa.s3.upload.PartBufferPool;
+import io.github.nejckorasa.s3.utils.FakeS3;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.amazonaws.services.s3.internal.Constants.MB;
+import static io.github.nejckorasa.s3.utils.FileUtils.putZippedTxtFile;
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncUnzipTest {
+
+    private static final String BUCKET_NAME = "test-bucket";
+
+    private final FakeS3 s3Client = new FakeS3().withBucket(BUCKET_NAME);
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    @SneakyThrows
+    public void unzipsObjectsAsynchronously() {
+        byte[] first = putZippedTxtFile(s3Client, BUCKET_NAME, "input/first.zip", tempDir, "first.txt", 1_000);
+        byte[] second = putZippedTxtFile(s3Client, BUCKET_NAME, "input/second.zip", tempDir, "second.txt", 1_000);
+
+        var executor = Executors.newFixedThreadPool(2);
+        try {
+            var um = new S3UnzipManager(s3Client, new NoSplitUnzipStrategy()).withAsyncExecutor(executor);
+            var single = um.unzipObjectAsync(BUCKET_NAME, "input/first.zip", "single");
+            var batch = um.unzipObjectsAsync(BUCKET_NAME, "input", "batch");
+            CompletableFuture.allOf(single, batch).get(30, TimeUnit.SECONDS);
+
+            assertThat(single.get().getUnzippedKeys()).containsExactly("input/first.zip");
+            assertThat(batch.get().getUnzippedKeys()).containsExactlyInAnyOrder("input/first.zip", "input/second.zip");
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(s3Client.getContent(BUCKET_NAME, "single/first.txt")).isEqualTo(first);
+        assertThat(s3Client.getContent(BUCKET_NAME, "batch/first.txt")).isEqualTo(first);
+        assertThat(s3Client.getContent(BUCKET_NAME, "batch/second.txt")).isEqualTo(second);
+    }
+
+    @Test
+    public void reportsFailureOfMissingObject() {
+        var um = new S3UnzipManager(s3Client, new NoSplitUnzipStrategy());
+        var result = um.unzipObjectAsync(BUCKET_NAME, "input/missing.zip", "output").join();
+
+        assertThat(result.isSuccessful()).isFalse();
+        assertThat(result.getFailures()).extracting(UnzipResult.Failure::getKey).containsExactly("input/missing.zip");
+    }
+
+    @Test
+    public void cancellingAbortsInFlightUploads() {
+        putZippedTxtFile(s3Client, BUCKET_NAME, "input/archive.zip", tempDir, "file.txt", 600_000);
+        s3Client.withLatency(FakeS3.Latency.fixed(200));
+
+        var um = new S3UnzipManager(s3Client, new NoSplitUnzipStrategy().withUploadPartBytesLimit(5 * MB));
+        var future = um.unzipObjectAsync(BUCKET_NAME, "input/archive.zip", "output");
+        awaitUntil(() -> s3Client.getRequestCount("uploadPart") > 0);
+
+        assertThat(future.cancel(true)).isTrue();
+        assertThat(future).isCancelled();
+        awaitUntil(() -> s3Client.getUploadCount() == 0);
+        assertThat(s3Client.getRequestCount("abortMultipartUpload")).isEqualTo(1);
+        assertThat(s3Client.getRequestCount("completeMultipartUpload")).isZero();
+        assertThat(s3Client.doesObjectExist(BUCKET_NAME, "output/file.txt")).isFalse();
+    }
+
+    @Test
+    @SneakyThrows
+    public void keepsLastEntryOfDuplicateNames() {
+        // first upload of the duplicate name is slow, it would overwrite the second one if they ran concurrently
+        var slowedFirstPut = new AtomicBoolean();
+        var slowS3Client = new FakeS3() {
+            @Override
+            @SneakyThrows
+            public PutObjectResult putObject(PutObjectRequest request) {
+                if (request.getKey().equals("output/file.txt") && slowedFirstPut.compareAndSet(false, true)) {
+                    Thread.sleep(500);
+                }
+                return super.putObject(request);
+            }
+        };
+        slowS3Client.createBucket(BUCKET_NAME);
+
+        // ZipOutputStream rejects duplicate names, the second entry is renamed in the written archive
+        var zipped = new ByteArrayOutputStream();
+        try (var zipOutputStream = new ZipOutputStream(zipped)) {
+            zipOutputStream.putNextEntry(new ZipEntry("file.txt"));
+            zipOutputStream.write("first\n".repeat(1_000).getBytes(UTF_8));
+            zipOutputStream.putNextEntry(new ZipEntry("file.tx2"));
+            zipOutputStream.write("second\n".repeat(1_000).getBytes(UTF_8));
+        }
+        byte[] archive = new String(zipped.toByteArray(), ISO_8859_1).replace("file.tx2", "file.txt").getBytes(ISO_8859_1);
+        slowS3Client.putObject(BUCKET_NAME, "input/archive.zip", new ByteArrayInputStream(archive), null);
+
+        var result = new S3UnzipManager(slowS3Client, new NoSplitUnzipStrategy()).unzipObjects(BUCKET_NAME, "input", "output");
+
+        assertThat(result.isSuccessful()).isTrue();
+        assertThat(new String(slowS3Client.getContent(BUCKET_NAME, "output/file.txt"), UTF_8)).isEqualTo("second\n".repeat(1_000));
+    }
+
+    @Test
+    @SneakyThrows
+    public void uploadsSmallEntriesFromPartBuffersInTheBackground() {
+        var entries = new ByteArrayOutputStream();
+        try (var zipOutputStream = new ZipOutputStream(entries)) {
+            for (int i = 0; i < 10; i++) {
+                zipOutputStream.putNextEntry(new ZipEntry("file" + i + ".txt"));
+                zipOutputStream.write(("file" + i + "\n").repeat(1_000).getBytes(UTF_8));
+            }
+        }
+        s3Client.putObject(BUCKET_NAME, "input/archive.zip", new ByteArrayInputStream(entries.toByteArray()), null);
+        s3Client.withLatency(FakeS3.Latency.fixed(50));
+
+        var memoryBudget = new MemoryBudget(64 * MB);
+        var partBufferPool = new PartBufferPool(PartBufferPool.UNBOUNDED, false, memoryBudget);
+        // entry sizes are unknown when streamed, each entry is read into a buffer of a whole part
+        var strategy = new NoSplitUnzipStrategy().withUploadPartBytesLimit(5 * MB);
+        var result = new S3UnzipManager(s3Client, strategy).withPartBufferPool(partBufferPool)
+                .unzipObjects(BUCKET_NAME, "input", "output");
+
+        assertThat(result.isSuccessful()).isTrue();
+        for (int i = 0; i < 10; i++) {
+            assertThat(new String(s3Client.getContent(BUCKET_NAME, "output/file" + i + ".txt"), UTF_8)).isEqualTo(("file" + i + "\n").repeat(1_000));
+        }
+        // buffers of uploads in flight are held, and charged to the budget, until uploaded
+        assertThat(memoryBudget.getPeakUsedBytes()).isGreaterThanOrEqualTo(2 * 5 * MB);
+        assertThat(partBufferPool.getAcquiredBytes()).isZero();
+        assertThat(memoryBudget.getUsedBytes()).isZero();
+    }
+
+    @SneakyThrows
+    private static void awaitUntil(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+
+}
@@ -0,0 +1,208 @@
+package io.github.nejckorasa.s3;
+
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.GetObjectMetadataRequest;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ListObjectsV2Request;
+import com.amazonaws.services.s3.model.ListObjectsV2Result;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.model.S3Object;
+import io.github.nejckorasa.s3.unzip.S3UnzipException;
+import io.github.nejckorasa.s3.unzip.S3UnzipManager;
+import io.github.nejckorasa.s3.unzip.UnzipResult;
+import io.github.nejckorasa.s3.unzip.strategy.NoSplitUnzipStrategy;
+import io.github.nejckorasa.s3.unzip.strategy.UnzipStrategy;
+import io.github.nejckorasa.s3.upload.RetryPolicy;
+import io.github.nejckorasa.s3.upload.S3MultipartUpload;
+import io.github.nejckorasa.s3.utils.FakeS3;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static com.amazonaws.services.s3.internal.Constants.MB;
+import static io.github.nejckorasa.s3.utils.FileUtils.putZippedTxtFile;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+public class FakeS3UnzipTest {
+
+    private static final String BUCKET_NAME = "test-bucket";
+
+    private final FakeS3 s3Client = new FakeS3().withBucket(BUCKET_NAME);
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void unzipsObjectsListedAcrossPages() {
+        byte[][] contents = new byte[3][];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = putZippedTxtFile(s3Client, BUCKET_NAME, "input/archive" + i + ".zip", tempDir, "file" + i + ".txt", 1_000);
+        }
+
+        var um = new S3UnzipManager(s3Client, new NoSplitUnzipStrategy()).withListPageSize(1);
+        var result = um.unzipObjects(BUCKET_NAME, "input", "output");
+
+        assertThat(result.isSuccessful()).isTrue();
+        assertThat(s3Client.getRequestCount("listObjectsV2")).isGreaterThanOrEqualTo(contents.length);
+        for (int i = 0; i < contents.length; i++) {
+            assertThat(s3Client.getContent(BUCKET_NAME, "output/file" + i + ".txt")).isEqualTo(contents[i]);
+        }
+    }
+
+    @Test
+    public void unzipsObjectDespiteThrottlingAndConnectionResets() {
+        byte[] content = putZippedTxtFile(s3Client, BUCKET_NAME, "input/archive.zip", tempDir, "file.txt", 300_000);
+        assertThat(content.length).isGreaterThan(10 * MB);
+
+        s3Client.withLatency(FakeS3.Latency.logNormal(2, 0.5))
+                .withThrottling(0.2, "uploadPart")
+                .withConnectionResets(0.2, "getObject", "uploadPart");
+
+        var retryPolicy = RetryPolicy.DEFAULT.withMaxRetries(20).withBaseBackoffMillis(1).withMaxBackoffMillis(10);
+        var config = S3MultipartUpload.Config.DEFAULT.withPartRetryPolicy(retryPolicy);
+        var um = new S3UnzipManager(s3Client, new NoSplitUnzipStrategy(config).withUploadPartBytesLimit(5 * MB))
+                .withDownloadRetryCount(20)
+                .withDownloadRetryBackoffMillis(1);
+        var result = um.unzipObjects(BUCKET_NAME, "input", "output");
+
+        assertThat(result.isSuccessful()).isTrue();
+        assertThat(s3Client.getContent(BUCKET_NAME, "output/file.txt")).isEqualTo(content);
+        assertThat(s3Client.getRequestCount("uploadPart")).isGreaterThan(2);
+    }
+
+    @Test
+    public void awaitsSubmittedArchivesWhenListingFails() {
+        var listingS3Client = new FakeS3() {
+            @Override
+            public ListObjectsV2Result listObjectsV2(ListObjectsV2Request request) {
+                if (request.getContinuationToken() != null) {
+                    throw new AmazonS3Exception("We encountered an internal error. Please try again.");
+                }
+                return super.listObjectsV2(request);
+            }
+        };
+        listingS3Client.createBucket(BUCKET_NAME);
+        putZippedTxtFile(listingS3Client, BUCKET_NAME, "input/archive0.zip", tempDir, "file0.txt", 1_000);
+        putZippedTxtFile(listingS3Client, BUCKET_NAME, "input/archive1.zip", tempDir, "file1.txt", 1_000);
+
+        UnzipStrategy slowStrategy = (zipFile, client) -> {
+            sleep(500);
+            new NoSplitUnzipStrategy().unzip(zipFile, client);
+        };
+        var um = new S3UnzipManager(listingS3Client, slowStrategy).withListPageSize(1).withArchiveThreadCount(2);
+
+        assertThatThrownBy(() -> um.unzipObjects(BUCKET_NAME, "input", "output")).isInstanceOf(S3UnzipException.class);
+        assertThat(listingS3Client.doesObjectExist(BUCKET_NAME, "output/file0.txt")).isTrue();
+    }
+
+    @Test
+    public void reportsFailedHeadRequestAsFailureOfItsObject() {
+        var headS3Client = new FakeS3() {
+            @Override
+            public ObjectMetadata getObjectMetadata(GetObjectMetadataRequest request) {
+                if (request.getKey().equals("input/archive0.zip")) {
+                    var exception = new AmazonS3Exception("Not Found");
+                    exception.setStatusCode(404);
+                    throw exception;
+                }
+                var metadata = super.getObjectMetadata(request);
+                metadata.setContentType("application/zip");
+                return metadata;
+            }
+        }.withBucket(BUCKET_NAME);
+        putZippedTxtFile(headS3Client, BUCKET_NAME, "input/archive0.zip", tempDir, "file0.txt", 1_000);
+        byte[] content = putZippedTxtFile(headS3Client, BUCKET_NAME, "input/archive1.zip", tempDir, "file1.txt", 1_000);
+
+        var result = new S3UnzipManager(headS3Client, new NoSplitUnzipStrategy()).withContentTypes(List.of("application/zip"))
+                .unzipObjects(BUCKET_NAME, "input", "output");
+
+        assertThat(result.getUnzippedKeys()).containsExactly("input/archive1.zip");
+        assertThat(result.getFailures()).extracting(UnzipResult.Failure::getKey).containsExactly("input/archive0.zip");
+        assertThat(headS3Client.getContent(BUCKET_NAME, "output/file1.txt")).isEqualTo(content);
+    }
+
+    @Test
+    public void closesReadAheadOfStalledDownloadByAbortingIt() {
+        var stalledS3Client = new FakeS3() {
+            @Override
+            public S3Object getObject(GetObjectRequest request) {
+                var s3Object = super.getObject(request);
+                s3Object.setObjectContent(new StalledInputStream(s3Object.getObjectContent(), 20 * 1024));
+                return s3Object;
+            }
+        };
+        stalledS3Client.createBucket(BUCKET_NAME);
+        putZippedTxtFile(stalledS3Client, BUCKET_NAME, "input/archive.zip", tempDir, "file.txt", 300_000);
+
+        UnzipStrategy failingStrategy = (zipFile, client) -> {
+            throw new S3UnzipException("Failed unzipping " + zipFile.filename());
+        };
+        var um = new S3UnzipManager(stalledS3Client, failingStrategy)
+                .withReadAheadBufferCount(2)
+                .withReadAheadBufferSize(16 * 1024);
+
+        var result = assertTimeoutPreemptively(Duration.ofSeconds(10), () -> um.unzipObjects(BUCKET_NAME, "input", "output"));
+        assertThat(result.getFailures()).hasSize(1);
+    }
+
+    @SneakyThrows
+    private static void sleep(long millis) {
+        Thread.sleep(millis);
+    }
+
+
+    /**
+     * Stalls after reading a number of bytes until closed, ignoring interrupts like a socket read does
+     */
+    private static final class StalledInputStream extends FilterInputStream {
+
+        private final CountDownLatch closed = new CountDownLatch(1);
+        private long remainingBytes;
+
+        private StalledInputStream(InputStream in, long stallAfterBytes) {
+            super(in);
+            this.remainingBytes = stallAfterBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remainingBytes == 0) {
+                while (closed.getCount() > 0) {
+                    try {
+                        closed.await();
+                    } catch (InterruptedException e) {
+                        // socket reads are not interruptible
+                    }
+                }
+                throw new IOException("Connection aborted");
+            }
+            int n = super.read(b, off, (int) Math.min(len, remainingBytes));
+            if (n > 0) {
+                remainingBytes -= n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed.countDown();
+            super.close();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package io.github.nejckorasa.s3;
+
+import io.github.nejckorasa.s3.jfr.ArchiveExtractedEvent;
+import io.github.nejckorasa.s3.jfr.EntryInflatedEvent;
+import io.github.nejckorasa.s3.jfr.PartUploadedEvent;
+import io.github.nejckorasa.s3.jfr.ShardCompletedEvent;
+import io.github.nejckorasa.s3.jfr.UploadAbortedEvent;
+import io.github.nejckorasa.s3.unzip.S3UnzipManager;
+import io.github.nejckorasa.s3.unzip.strategy.NoSplitUnzipStrategy;
+import io.github.nejckorasa.s3.unzip.strategy.SplitTextUnzipStrategy;
+import io.github.nejckorasa.s3.unzip.strategy.UnzipStrategy;
+import io.github.nejckorasa.s3.upload.RetryPolicy;
+import io.github.nejckorasa.s3.upload.S3MultipartUpload;
+import io.github.nejckorasa.s3.utils.FakeS3;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.amazonaws.services.s3.internal.Constants.MB;
+import static io.github.nejckorasa.s3.utils.FileUtils.putZippedTxtFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class JfrEventsTest {
+
+    private static final String BUCKET_NAME = "test-bucket";
+
+    private final FakeS3 s3Client = new FakeS3().withBucket(BUCKET_NAME);
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    public void recordsArchiveEntryShardAndPartEvents() {
+        byte[] content = putZippedTxtFile(s3Client, BUCKET_NAME, "input/archive.zip", tempDir, "file.txt", 300_000);
+
+        var strategy = new SplitTextUnzipStrategy().withUploadPartBytesLimit(5 * MB).withFileBytesLimit(5 * MB);
+        var events = record(strategy);
+
+        var archives = events(events, ArchiveExtractedEvent.NAME);
+        assertThat(archives).hasSize(1);
+        assertThat(archives.get(0).getString("key")).isEqualTo("input/archive.zip");
+        assertThat(archives.get(0).getInt("entryCount")).isEqualTo(1);
+
+        var entries = events(events, EntryInflatedEvent.NAME);
+        assertThat(entries).hasSize(1);
+        assertThat(entries.get(0).getString("entryName")).isEqualTo("file.txt");
+        assertThat(entries.get(0).getLong("uncompressedBytes")).isEqualTo(content.length);
+
+        var shards = events(events, ShardCompletedEvent.NAME);
+        assertThat(shards).hasSize(s3Client.getRequestCount("completeMultipartUpload")).hasSizeGreaterThan(1);
+        assertThat(shards.stream().mapToLong(shard -> shard.getLong("bytes")).sum()).isEqualTo(content.length);
+        assertThat(shards).allSatisfy(shard -> assertThat(shard.getString("uploadId")).isNotNull());
+
+        var parts = events(events, PartUploadedEvent.NAME);
+        assertThat(parts).hasSize(s3Client.getRequestCount("uploadPart"));
+        assertThat(parts).allSatisfy(part -> assertThat(part.getInt("partNumber")).isPositive());
+        assertThat(events(events, UploadAbortedEvent.NAME)).isEmpty();
+    }
+
+    @Test
+    public void recordsAbortedUpload() {
+        putZippedTxtFile(s3Client, BUCKET_NAME, "input/archive.zip", tempDir, "file.txt", 300_000);
+        s3Client.withThrottling(1, "uploadPart");
+
+        var config = S3MultipartUpload.Config.DEFAULT.withPartRetryPolicy(RetryPolicy.NONE);
+        var events = record(new NoSplitUnzipStrategy(config).withUploadPartBytesLimit(5 * MB));
+
+        var aborted = events(events, UploadAbortedEvent.NAME);
+        assertThat(aborted).hasSize(1);
+        assertThat(aborted.get(0).getString("key")).isEqualTo("output/file.txt");
+        assertThat(aborted.get(0).getString("uploadId")).isNotNull();
+        assertThat(aborted.get(0).getString("cause")).contains("SlowDown");
+        assertThat(events(events, ArchiveExtractedEvent.NAME)).isEmpty();
+    }
+
+    @SneakyThrows
+    private List<RecordedEvent> record(UnzipStrategy strategy) {
+        var file = tempDir.resolve("recording.jfr");
+        try (var recording = new Recording(); var um = new S3UnzipManager(s3Client, strategy)) {
+            List.of(ArchiveExtractedEvent.NAME, EntryInflatedEvent.NAME, ShardCompletedEvent.NAME, PartUploadedEvent.NAME, UploadAbortedEvent.NAME)
+                    .forEach(name -> recording.enable(name).withoutThreshold());
+            recording.start();
+            um.unzipObjects(BUCKET_NAME, "input", "output");
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file);
+    }
+
+    private static List<RecordedEvent> events(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).collect(Collectors.toList());
+    }
+
+}
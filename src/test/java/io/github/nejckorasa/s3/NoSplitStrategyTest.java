@@ -2,12 +2,25 @@ package io.github.nejckorasa.s3;
 
 import io.github.nejckorasa.s3.unzip.S3UnzipManager;
 import io.github.nejckorasa.s3.unzip.strategy.NoSplitUnzipStrategy;
+import io.github.nejckorasa.s3.upload.AdaptiveConcurrency;
+import io.github.nejckorasa.s3.upload.MemoryBudget;
+import io.github.nejckorasa.s3.upload.PartBufferPool;
+import io.github.nejckorasa.s3.upload.PartHedging;
+import io.github.nejckorasa.s3.upload.RetryPolicy;
+import io.github.nejckorasa.s3.upload.S3MultipartUpload;
+import io.github.nejckorasa.s3.upload.S3UploadScheduler;
 import io.github.nejckorasa.s3.utils.FileUtils;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 
 import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static com.amazonaws.services.s3.internal.Constants.MB;
+import static io.github.nejckorasa.s3.utils.CountingRequests.countingRequests;
+import static io.github.nejckorasa.s3.utils.FailingDownloads.failingDownloads;
+import static io.github.nejckorasa.s3.utils.FailingUploads.stalledUploadPart;
+import static io.github.nejckorasa.s3.utils.FailingUploads.throttledUploadParts;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class NoSplitStrategyTest {
@@ -38,4 +51,183 @@ public class NoSplitStrategyTest {
 
         assertThat(s3.downloadAsBytes("s3://test-bucket/output/test.txt")).isEqualTo(txtBytes);
     }
+
+    @Test
+    public void unzipsSmallObjectWithSinglePut() {
+        var txtBytes = FileUtils.generateZippedTxtFile(
+                Paths.get(S3_BACKEND_PATH, BUCKET_NAME, "input"),
+                "test.txt",
+                10_000);
+
+        var multipartUploads = new AtomicInteger();
+        var s3Client = countingRequests(s3.s3Client, "initiateMultipartUpload", multipartUploads);
+        var um = new S3UnzipManager(s3Client, new NoSplitUnzipStrategy());
+        um.unzipObjects(BUCKET_NAME, "input", "output");
+
+        assertThat(multipartUploads.get()).isZero();
+        assertThat(s3.downloadAsBytes("s3://test-bucket/output/test.txt")).isEqualTo(txtBytes);
+    }
+
+    @Test
+    public void unzipsSmallObjectInBufferSizedToEntry() {
+        var txtBytes = FileUtils.generateZippedTxtFile(
+                Paths.get(S3_BACKEND_PATH, BUCKET_NAME, "input"),
+                "test.txt",
+                10_000);
+
+        // entry size is read from the central directory
+        var memoryBudget = new MemoryBudget(MB);
+        var um = new S3UnzipManager(s3.s3Client, new NoSplitUnzipStrategy())
+                .withRandomAccess(true)
+                .withPartBufferPool(new PartBufferPool(PartBufferPool.UNBOUNDED, false, memoryBudget));
+        um.unzipObjects(BUCKET_NAME, "input", "output");
+
+        assertThat(s3.downloadAsBytes("s3://test-bucket/output/test.txt")).isEqualTo(txtBytes);
+        assertThat(memoryBudget.getPeakUsedBytes()).isPositive().isLessThanOrEqualTo(MB);
+    }
+
+    @Test
+    public void unzipsLargeObjectWithReadAhead() {
+        var txtBytes = FileUtils.generateZippedTxtFile(
+                Paths.get(S3_BACKEND_PATH, BUCKET_NAME, "input"),
+                "test.txt",
+                2_000_000);
+
+        var strategy = new NoSplitUnzipStrategy();
+        var um = new S3UnzipManager(s3.s3Client, strategy)
+                .withReadAheadBufferCount(4)
+                .withReadAheadBufferSize(64 * 1024);
+        um.unzipObjects(BUCKET_NAME, "input", "output");
+
+        s3.verifyBucketFileCount("s3://test-bucket/output", 1);
+        assertThat(s3.downloadAsBytes("s3://test-bucket/output/test.txt")).isEqualTo(txtBytes);
+    }
+
+    @Test
+    public void unzipsLargeObjectResumingFailedDownloads() {
+        var txtBytes = FileUtils.generateZippedTxtFile(
+                Paths.get(S3_BACKEND_PATH, BUCKET_NAME, "input"),
+                "test.txt",
+                2_000_000);
+
+        var s3Client = failingDownloads(s3.s3Client, 1 * MB, 3);
+        var um = new S3UnzipManager(s3Client, new NoSplitUnzipStrategy())
+                .withDownloadRetryBackoffMillis(10);
+        var result = um.unzipObjects(BUCKET_NAME, "input", "output");
+
+        assertThat(result.isSuccessful()).isTrue();
+        assertThat(s3.downloadAsBytes("s3://test-bucket/output/test.txt")).isEqualTo(txtBytes);
+    }
+
+    @Test
+    public void unzipsLargeObjectRetryingThrottledParts() {
+        var txtBytes = FileUtils.generateZippedTxtFile(
+                Paths.get(S3_BACKEND_PATH, BUCKET_NAME, "input"),
+                "test.txt",
+                2_000_000);
+
+        var config = new S3MultipartUpload.Config()
+                .withPartRetryPolicy(RetryPolicy.DEFAULT.withMaxRetries(5).withBaseBackoffMillis(10));
+        var strategy = new NoSplitUnzipStrategy(config).withUploadPartBytesLimit(5 * MB);
+        var um = new S3UnzipManager(throttledUploadParts(s3.s3Client, 4), strategy);
+        var result = um.unzipObjects(BUCKET_NAME, "input", "output");
+
+        assertThat(result.isSuccessful()).isTrue();
+        assertThat(s3.downloadAsBytes("s3://test-bucket/output/test.txt")).isEqualTo(txtBytes);
+    }
+
+    @Test
+    public void unzipsLargeObjectWithAdaptiveConcurrency() {
+        var txtBytes = FileUtils.generateZippedTxtFile(
+                Paths.get(S3_BACKEND_PATH, BUCKET_NAME, "input"),
+                "test.txt",
+                2_000_000);
+
+        var concurrency = new AdaptiveConcurrency(1, 8);
+        var config = new S3MultipartUpload.Config()
+                .withThreadCount(8)
+                .withPartRetryPolicy(RetryPolicy.DEFAULT.withBaseBackoffMillis(10));
+        var strategy = new NoSplitUnzipStrategy(config).withUploadPartBytesLimit(5 * MB);
+        try (var um = new S3UnzipManager(throttledUploadParts(s3.s3Client, 2), strategy)
+                .withUploadScheduler(new S3UploadScheduler(concurrency, 2))) {
+            var result = um.unzipObjects(BUCKET_NAME, "input", "output");
+            assertThat(result.isSuccessful()).isTrue();
+        }
+
+        assertThat(s3.downloadAsBytes("s3://test-bucket/output/test.txt")).isEqualTo(txtBytes);
+        assertThat(concurrency.getLimit()).isBetween(1, 8);
+    }
+
+    @Test
+    public void unzipsLargeObjectHedgingStalledPart() {
+        var txtBytes = FileUtils.generateZippedTxtFile(
+                Paths.get(S3_BACKEND_PATH, BUCKET_NAME, "input"),
+                "test.txt",
+                2_000_000);
+
+        var partUploads = new AtomicInteger();
+        var s3Client = stalledUploadPart(s3.s3Client, 3, 30_000, partUploads);
+        var config = new S3MultipartUpload.Config()
+                .withPartHedging(new PartHedging().withMinSamples(1).withMinDelayMillis(1000));
+        var strategy = new NoSplitUnzipStrategy(config).withUploadPartBytesLimit(5 * MB);
+
+        var start = System.currentTimeMillis();
+        var result = new S3UnzipManager(s3Client, strategy).unzipObjects(BUCKET_NAME, "input", "output");
+
+        assertThat(result.isSuccessful()).isTrue();
+        assertThat(System.currentTimeMillis() - start).isLessThan(30_000);
+        assertThat(partUploads.get()).isEqualTo(2);
+        assertThat(s3.downloadAsBytes("s3://test-bucket/output/test.txt")).isEqualTo(txtBytes);
+    }
+
+    @Test
+    public void unzipsLargeObjectWithRandomAccess() {
+        var txtBytes = FileUtils.generateZippedTxtFile(
+                Paths.get(S3_BACKEND_PATH, BUCKET_NAME, "input"),
+                "test.txt",
+                2_000_000);
+
+        var um = new S3UnzipManager(s3.s3Client, new NoSplitUnzipStrategy()).withRandomAccess(true);
+        um.unzipObjects(BUCKET_NAME, "input", "output");
+
+        s3.verifyBucketFileCount("s3://test-bucket/output", 1);
+        assertThat(s3.downloadAsBytes("s3://test-bucket/output/test.txt")).isEqualTo(txtBytes);
+    }
+
+    @Test
+    public void unzipsLargeObjectWithBoundedDirectPartBufferPool() {
+        var txtBytes = FileUtils.generateZippedTxtFile(
+                Paths.get(S3_BACKEND_PATH, BUCKET_NAME, "input"),
+                "test.txt",
+                2_000_000);
+
+        var partBufferPool = new PartBufferPool(2 * 5 * MB, true);
+        var strategy = new NoSplitUnzipStrategy().withUploadPartBytesLimit(5 * MB);
+        var um = new S3UnzipManager(s3.s3Client, strategy).withPartBufferPool(partBufferPool);
+        um.unzipObjects(BUCKET_NAME, "input", "output");
+
+        s3.verifyBucketFileCount("s3://test-bucket/output", 1);
+        assertThat(s3.downloadAsBytes("s3://test-bucket/output/test.txt")).isEqualTo(txtBytes);
+        assertThat(partBufferPool.getAcquiredBytes()).isZero();
+        assertThat(partBufferPool.getAllocatedBytes()).isZero();
+    }
+
+    @Test
+    public void unzipsLargeObjectWithinMemoryBudget() {
+        var txtBytes = FileUtils.generateZippedTxtFile(
+                Paths.get(S3_BACKEND_PATH, BUCKET_NAME, "input"),
+                "test.txt",
+                2_000_000);
+
+        var memoryBudget = new MemoryBudget(2 * 5 * MB);
+        var strategy = new NoSplitUnzipStrategy().withUploadPartBytesLimit(5 * MB);
+        var um = new S3UnzipManager(s3.s3Client, strategy)
+                .withPartBufferPool(new PartBufferPool(PartBufferPool.UNBOUNDED, false, memoryBudget));
+        um.unzipObjects(BUCKET_NAME, "input", "output");
+
+        assertThat(s3.downloadAsBytes("s3://test-bucket/output/test.txt")).isEqualTo(txtBytes);
+        assertThat(memoryBudget.getPeakUsedBytes()).isPositive().isLessThanOrEqualTo(2 * 5 * MB);
+        // free buffers are released to the budget once unzipping finishes
+        assertThat(memoryBudget.getUsedBytes()).isZero();
+    }
 }
@@ -0,0 +1,138 @@
+package io.github.nejckorasa.s3;
+
+import com.amazonaws.services.s3.model.InitiateMultipartUploadRequest;
+import com.amazonaws.services.s3.model.InitiateMultipartUploadResult;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+import com.amazonaws.services.s3.model.UploadPartResult;
+import io.github.nejckorasa.s3.upload.AdaptiveConcurrency;
+import io.github.nejckorasa.s3.upload.MemoryBudget;
+import io.github.nejckorasa.s3.upload.PartHedging;
+import io.github.nejckorasa.s3.upload.S3MultipartUpload;
+import io.github.nejckorasa.s3.upload.S3UploadScheduler;
+import io.github.nejckorasa.s3.utils.FakeS3;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.amazonaws.services.s3.internal.Constants.MB;
+import static io.github.nejckorasa.s3.utils.FailingUploads.stalledUploadPart;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class S3MultipartUploadTest {
+
+    private static final String BUCKET_NAME = "test-bucket";
+
+    private final List<Integer> uploadedPartSizes = new CopyOnWriteArrayList<>();
+    private final CountDownLatch partUploads = new CountDownLatch(4);
+
+    private final FakeS3 s3Client = new FakeS3() {
+        @Override
+        @SneakyThrows
+        public UploadPartResult uploadPart(UploadPartRequest request) {
+            byte[] data = request.getInputStream().readAllBytes();
+            uploadedPartSizes.add(data.length);
+            partUploads.countDown();
+            return super.uploadPart(request.withInputStream(new ByteArrayInputStream(data)));
+        }
+    }.withBucket(BUCKET_NAME);
+
+    @Test
+    @SneakyThrows
+    public void hedgesByteArrayPartWithItsOwnStream() {
+        var random = new Random(42);
+        byte[] firstPart = new byte[5 * MB];
+        byte[] finalPart = new byte[MB];
+        random.nextBytes(firstPart);
+        random.nextBytes(finalPart);
+
+        var config = new S3MultipartUpload.Config()
+                .withPartHedging(new PartHedging().withMinSamples(1).withMinDelayMillis(200));
+        try (var scheduler = new S3UploadScheduler(AdaptiveConcurrency.fixed(4), 2)) {
+            // records the part latency hedging needs
+            var warmUp = new S3MultipartUpload(BUCKET_NAME, "output/warm-up", s3Client, config, scheduler);
+            warmUp.initialize();
+            warmUp.uploadFinalPart(finalPart);
+
+            // first upload of the final part stalls before reading its data, its hedged upload reads the data meanwhile
+            var upload = new S3MultipartUpload(BUCKET_NAME, "output/object", stalledUploadPart(s3Client, 2, 2_000, new AtomicInteger()),
+                    config, scheduler);
+            upload.initialize();
+            upload.uploadPart(firstPart);
+            upload.uploadFinalPart(finalPart);
+
+            assertThat(partUploads.await(10, TimeUnit.SECONDS)).isTrue();
+        }
+
+        var content = new ByteArrayOutputStream();
+        content.writeBytes(firstPart);
+        content.writeBytes(finalPart);
+        assertThat(s3Client.getContent(BUCKET_NAME, "output/object")).isEqualTo(content.toByteArray());
+        assertThat(uploadedPartSizes).containsExactlyInAnyOrder(finalPart.length, firstPart.length, finalPart.length, finalPart.length);
+    }
+
+    @Test
+    @SneakyThrows
+    public void doesNotHedgePartsEncryptedWithKmsKey() {
+        var encryptedS3Client = new FakeS3() {
+            @Override
+            public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+                // default encryption of the bucket, each upload of a part produces a new ETag
+                var result = super.initiateMultipartUpload(request);
+                result.setSSEAlgorithm("aws:kms");
+                return result;
+            }
+        }.withBucket(BUCKET_NAME);
+        byte[] finalPart = new byte[MB];
+        new Random(42).nextBytes(finalPart);
+
+        var config = new S3MultipartUpload.Config()
+                .withPartHedging(new PartHedging().withMinSamples(1).withMinDelayMillis(200));
+        try (var scheduler = new S3UploadScheduler(AdaptiveConcurrency.fixed(4), 2)) {
+            // records the part latency hedging needs
+            var warmUp = new S3MultipartUpload(BUCKET_NAME, "output/warm-up", s3Client, config, scheduler);
+            warmUp.initialize();
+            warmUp.uploadFinalPart(finalPart);
+
+            var partUploads = new AtomicInteger();
+            var upload = new S3MultipartUpload(BUCKET_NAME, "output/object", stalledUploadPart(encryptedS3Client, 1, 1_000, partUploads),
+                    config, scheduler);
+            upload.initialize();
+            upload.uploadFinalPart(finalPart);
+
+            assertThat(partUploads.get()).isEqualTo(1);
+        }
+        assertThat(encryptedS3Client.getContent(BUCKET_NAME, "output/object")).isEqualTo(finalPart);
+    }
+
+    @Test
+    public void chargesByteArrayPartsToMemoryBudget() {
+        var memoryBudget = new MemoryBudget(2 * 5 * MB);
+        var config = new S3MultipartUpload.Config().withMemoryBudget(memoryBudget).withUploadPartBytesLimit(5 * MB);
+        var content = new ByteArrayOutputStream();
+
+        var upload = new S3MultipartUpload(BUCKET_NAME, "output/object", s3Client, config);
+        upload.initialize();
+        for (int i = 0; i < 4; i++) {
+            byte[] part = new byte[5 * MB];
+            new Random(i).nextBytes(part);
+            content.writeBytes(part);
+            upload.uploadPart(part);
+            assertThat(memoryBudget.getUsedBytes()).isLessThanOrEqualTo(2 * 5 * MB);
+        }
+        byte[] finalPart = new byte[MB];
+        content.writeBytes(finalPart);
+        upload.uploadFinalPart(new ByteArrayInputStream(finalPart));
+
+        assertThat(s3Client.getContent(BUCKET_NAME, "output/object")).isEqualTo(content.toByteArray());
+        assertThat(memoryBudget.getPeakUsedBytes()).isGreaterThanOrEqualTo(5 * MB);
+        assertThat(memoryBudget.getUsedBytes()).isZero();
+    }
+}
@@ -1,17 +1,31 @@
 package io.github.nejckorasa.s3;
 
+import io.github.nejckorasa.s3.unzip.S3UnzipException;
 import io.github.nejckorasa.s3.unzip.S3UnzipManager;
+import io.github.nejckorasa.s3.unzip.UnzipResult;
+import io.github.nejckorasa.s3.unzip.checkpoint.Checkpoint;
+import io.github.nejckorasa.s3.unzip.checkpoint.CheckpointStore;
+import io.github.nejckorasa.s3.unzip.checkpoint.LocalFileCheckpointStore;
+import io.github.nejckorasa.s3.unzip.checkpoint.S3CheckpointStore;
 import io.github.nejckorasa.s3.unzip.strategy.NoSplitUnzipStrategy;
+import io.github.nejckorasa.s3.unzip.strategy.UnzipStrategy;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
 import org.skyscreamer.jsonassert.JSONAssert;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
+import static io.github.nejckorasa.s3.utils.FailingUploads.failingPutObjects;
 import static io.github.nejckorasa.s3.utils.FileUtils.readFileAsString;
+import static java.util.Collections.synchronizedList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.skyscreamer.jsonassert.JSONCompareMode.LENIENT;
 
 public class S3UnzipManagerTest {
@@ -86,6 +100,38 @@ public class S3UnzipManagerTest {
         assertThat(s3.downloadAsString("s3://test-bucket/output/file.csv")).isEqualTo(readFileAsString("test-data/raw/file.csv"));
     }
 
+    @Test
+    public void failsUnzippingAnObjectWhenBackgroundUploadFails() {
+        var um = new S3UnzipManager(failingPutObjects(s3.s3Client), new NoSplitUnzipStrategy());
+
+        assertThatThrownBy(() -> um.unzipObject(s3.download("s3://test-bucket/input/flat/Archive.zip"), "output"))
+                .isInstanceOf(S3UnzipException.class)
+                .hasMessageContaining("Failed to upload entries");
+    }
+
+    @Test
+    public void unzipsObjectsWithRandomAccess() {
+        var um = new S3UnzipManager(s3.s3Client, new NoSplitUnzipStrategy())
+                .withRandomAccess(true)
+                .withEntryThreadCount(2);
+
+        um.unzipObjects(BUCKET_NAME, "input/subfolder", "output");
+        s3.verifyContainsFiles("s3://test-bucket/output",
+                "output/Archive/file.json",
+                "output/Archive/folder/file.csv",
+                "output/Archive/folder/subfolder/another_file.csv");
+
+        assertMatchesJson(
+                s3.downloadAsString("s3://test-bucket/output/Archive/file.json"),
+                readFileAsString("test-data/raw/file.json"));
+
+        assertThat(s3.downloadAsString("s3://test-bucket/output/Archive/folder/file.csv"))
+                .isEqualTo(readFileAsString("test-data/raw/file.csv"));
+
+        assertThat(s3.downloadAsString("s3://test-bucket/output/Archive/folder/subfolder/another_file.csv"))
+                .isEqualTo(readFileAsString("test-data/raw/file.csv"));
+    }
+
     @Test
     public void unzipsObjectsWithContentType() {
         var unzipStrategy = new NoSplitUnzipStrategy();
@@ -108,6 +154,46 @@ public class S3UnzipManagerTest {
         s3.verifyBucketFileCount("s3://test-bucket/output-2", 0);
     }
 
+    @Test
+    public void unzipsObjectsWithContentTypeWithRandomAccess() {
+        new S3UnzipManager(s3.s3Client, new NoSplitUnzipStrategy())
+                .withContentTypes(List.of("application/zip"))
+                .withMetadataThreadCount(1)
+                .withRandomAccess(true)
+                .unzipObjects(BUCKET_NAME, "input", "output");
+
+        s3.verifyContainsFiles("s3://test-bucket/output",
+                "output/file.json",
+                "output/file.csv",
+                "output/Archive/file.json",
+                "output/Archive/folder/file.csv",
+                "output/Archive/folder/subfolder/another_file.csv");
+        s3.verifyBucketFileCount("s3://test-bucket/input", 4);
+    }
+
+    @Test
+    public void unzipsObjectsInParallelIsolatingFailures() {
+        var result = new S3UnzipManager(s3.s3Client, new NoSplitUnzipStrategy())
+                .withArchiveThreadCount(2)
+                .withRandomAccess(true)
+                .unzipObjects(BUCKET_NAME, "input", "output");
+
+        assertThat(result.isSuccessful()).isFalse();
+        assertThat(result.getUnzippedKeys()).containsExactlyInAnyOrder(
+                "input/flat/Archive.zip",
+                "input/subfolder/Archive.zip");
+        assertThat(result.getFailures())
+                .extracting(UnzipResult.Failure::getKey)
+                .containsExactlyInAnyOrder("input/file.json", "input/file.csv");
+
+        s3.verifyContainsFiles("s3://test-bucket/output",
+                "output/file.json",
+                "output/file.csv",
+                "output/Archive/file.json",
+                "output/Archive/folder/file.csv",
+                "output/Archive/folder/subfolder/another_file.csv");
+    }
+
     @Test
     public void unzipsObjectsMatchingKey() {
         var um = new S3UnzipManager(s3.s3Client, new NoSplitUnzipStrategy());
@@ -140,6 +226,71 @@ public class S3UnzipManagerTest {
         s3.verifyBucketFileCount("s3://test-bucket/output-2", 0);
     }
 
+    @Test
+    public void resumesFromCheckpointInS3() {
+        resumesFromCheckpoint(new S3CheckpointStore(s3.s3Client, BUCKET_NAME, "checkpoints"), false);
+    }
+
+    @Test
+    public void resumesFromLocalFileCheckpointWithRandomAccess(@TempDir Path checkpointDirectory) {
+        resumesFromCheckpoint(new LocalFileCheckpointStore(checkpointDirectory), true);
+    }
+
+    private void resumesFromCheckpoint(CheckpointStore checkpointStore, boolean randomAccess) {
+        var failingEntry = "Archive/folder/subfolder/another_file.csv";
+        List<String> firstRunEntries = synchronizedList(new ArrayList<>());
+        UnzipStrategy failingStrategy = (zipFile, s3Client) -> {
+            if (zipFile.filename().equals(failingEntry)) {
+                throw new S3UnzipException("Failed unzipping " + failingEntry);
+            }
+            firstRunEntries.add(zipFile.filename());
+            new NoSplitUnzipStrategy().unzip(zipFile, s3Client);
+        };
+
+        var firstRun = new S3UnzipManager(s3.s3Client, failingStrategy)
+                .withCheckpointStore(checkpointStore)
+                .withRandomAccess(randomAccess)
+                .unzipObjects(BUCKET_NAME, "input/subfolder", "output");
+        assertThat(firstRun.getFailures()).hasSize(1);
+
+        List<String> secondRunEntries = synchronizedList(new ArrayList<>());
+        UnzipStrategy recordingStrategy = (zipFile, s3Client) -> {
+            secondRunEntries.add(zipFile.filename());
+            new NoSplitUnzipStrategy().unzip(zipFile, s3Client);
+        };
+
+        var secondRun = new S3UnzipManager(s3.s3Client, recordingStrategy)
+                .withCheckpointStore(checkpointStore)
+                .withRandomAccess(randomAccess)
+                .unzipObjects(BUCKET_NAME, "input/subfolder", "output");
+        assertThat(secondRun.isSuccessful()).isTrue();
+        assertThat(secondRunEntries).contains(failingEntry).doesNotContainAnyElementsOf(firstRunEntries);
+        s3.verifyContainsFiles("s3://test-bucket/output",
+                "output/Archive/file.json",
+                "output/Archive/folder/file.csv",
+                "output/Archive/folder/subfolder/another_file.csv");
+
+        secondRunEntries.clear();
+        var thirdRun = new S3UnzipManager(s3.s3Client, recordingStrategy)
+                .withCheckpointStore(checkpointStore)
+                .withRandomAccess(randomAccess)
+                .unzipObjects(BUCKET_NAME, "input/subfolder", "output");
+        assertThat(thirdRun.isSuccessful()).isTrue();
+        assertThat(secondRunEntries).isEmpty();
+    }
+
+    @Test
+    public void storesLocalFileCheckpointsOfLongKeysAndEntryNamesWithLineBreaks(@TempDir Path checkpointDirectory) {
+        var checkpointStore = new LocalFileCheckpointStore(checkpointDirectory);
+        var key = "input/" + "a".repeat(1000) + ".zip";
+        var checkpoint = new Checkpoint("etag", false, Set.of("line\nbreak.txt", "back\\slash\\n.txt", "carriage\rreturn.txt"));
+
+        checkpointStore.save(BUCKET_NAME, key, checkpoint);
+
+        assertThat(checkpointStore.load(BUCKET_NAME, key)).contains(checkpoint);
+        assertThat(checkpointStore.load(BUCKET_NAME, "input/other.zip")).isEmpty();
+    }
+
     @SneakyThrows
     private void assertMatchesJson(String actual, String expected) {
         JSONAssert.assertEquals(expected, actual, LENIENT);
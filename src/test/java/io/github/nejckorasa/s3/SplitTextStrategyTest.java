@@ -7,11 +7,15 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
 
+import static com.amazonaws.services.s3.internal.Constants.KB;
 import static com.amazonaws.services.s3.internal.Constants.MB;
 import static io.github.nejckorasa.s3.utils.FileUtils.readTxt;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class SplitTextStrategyTest {
@@ -82,6 +86,36 @@ public class SplitTextStrategyTest {
         ));
     }
 
+    @Test
+    public void splitsCrlfTxtObjectPreservingBytes() {
+        var txtBytes = FileUtils.generateZippedCrlfTxtFile(
+                Paths.get(S3_BACKEND_PATH, BUCKET_NAME, "input"),
+                "test.csv",
+                1_000);
+
+        var strategy = new SplitTextUnzipStrategy()
+                .withUploadPartBytesLimit(4 * KB)
+                .withFileBytesLimit(KB)
+                .withHeader(true);
+
+        var um = new S3UnzipManager(s3.s3Client, strategy);
+        um.unzipObjects(BUCKET_NAME, "input", "output");
+
+        var headerLine = "COL1, COL2, COL3, COL4\r\n".getBytes(UTF_8);
+        var shards = s3.s3Client.listObjects(BUCKET_NAME, "output").getObjectSummaries().size();
+        assertThat(shards).isGreaterThan(1);
+
+        var joined = new ByteArrayOutputStream();
+        for (int fileNumber = 1; fileNumber <= shards; fileNumber++) {
+            var shardBytes = s3.downloadAsBytes("s3://test-bucket/output/" + fileNumber + "-test.csv");
+            assertThat(Arrays.copyOf(shardBytes, headerLine.length)).isEqualTo(headerLine);
+            int offset = fileNumber == 1 ? 0 : headerLine.length;
+            joined.write(shardBytes, offset, shardBytes.length - offset);
+        }
+
+        assertThat(joined.toByteArray()).isEqualTo(txtBytes);
+    }
+
     private void assertMatchesDataSplitInObjects(byte[] data, boolean withHeader, List<String> objectPaths) {
         var expected = readTxt(new ByteArrayInputStream(data));
 
@@ -0,0 +1,43 @@
+package io.github.nejckorasa.s3;
+
+import io.github.nejckorasa.s3.unzip.S3UnzipManager;
+import io.github.nejckorasa.s3.unzip.strategy.StoredCopyUnzipStrategy;
+import io.github.nejckorasa.s3.utils.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+import java.nio.file.Paths;
+
+import static com.amazonaws.services.s3.internal.Constants.MB;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StoredCopyStrategyTest {
+
+    public static final String BUCKET_NAME = "test-bucket";
+    public static final String S3_BACKEND_PATH = "tmp/s3-backend";
+
+    @RegisterExtension
+    private final S3Test s3 = new S3Test()
+            .withLocalFileBackend(S3_BACKEND_PATH)
+            .withDefaultBucket(BUCKET_NAME);
+
+    @Test
+    public void copiesStoredAndUnzipsDeflatedEntries() {
+        var txtBytes = FileUtils.generateStoredZipFile(
+                Paths.get(S3_BACKEND_PATH, BUCKET_NAME, "input"),
+                "stored.txt",
+                "deflated.txt",
+                300_000);
+
+        var strategy = new StoredCopyUnzipStrategy()
+                .withCopyPartBytesLimit(5 * MB)
+                .withVerifyCrc(true);
+
+        var um = new S3UnzipManager(s3.s3Client, strategy).withRandomAccess(true);
+        um.unzipObjects(BUCKET_NAME, "input", "output");
+
+        s3.verifyBucketFileCount("s3://test-bucket/output", 2);
+        assertThat(s3.downloadAsBytes("s3://test-bucket/output/stored.txt")).isEqualTo(txtBytes);
+        assertThat(s3.downloadAsBytes("s3://test-bucket/output/deflated.txt")).isEqualTo(txtBytes);
+    }
+}
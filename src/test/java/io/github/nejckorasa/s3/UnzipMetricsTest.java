@@ -0,0 +1,81 @@
+package io.github.nejckorasa.s3;
+
+import io.github.nejckorasa.s3.metrics.MicrometerUnzipMetrics;
+import io.github.nejckorasa.s3.unzip.S3UnzipManager;
+import io.github.nejckorasa.s3.unzip.strategy.NoSplitUnzipStrategy;
+import io.github.nejckorasa.s3.unzip.strategy.SplitTextUnzipStrategy;
+import io.github.nejckorasa.s3.upload.AdaptiveConcurrency;
+import io.github.nejckorasa.s3.upload.RetryPolicy;
+import io.github.nejckorasa.s3.upload.S3MultipartUpload;
+import io.github.nejckorasa.s3.upload.S3UploadScheduler;
+import io.github.nejckorasa.s3.utils.FakeS3;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static com.amazonaws.services.s3.internal.Constants.MB;
+import static io.github.nejckorasa.s3.utils.FileUtils.putZippedTxtFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UnzipMetricsTest {
+
+    private static final String BUCKET_NAME = "test-bucket";
+
+    private final FakeS3 s3Client = new FakeS3().withBucket(BUCKET_NAME);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final S3UploadScheduler uploadScheduler =
+            new S3UploadScheduler(AdaptiveConcurrency.fixed(4), 2, new MicrometerUnzipMetrics(registry));
+
+    @TempDir
+    private Path tempDir;
+
+    @AfterEach
+    public void afterEach() {
+        uploadScheduler.close();
+    }
+
+    @Test
+    public void reportsBytesInflatedPartsAndShards() {
+        byte[] content = putZippedTxtFile(s3Client, BUCKET_NAME, "input/archive.zip", tempDir, "file.txt", 300_000);
+        long archiveSize = s3Client.getObjectMetadata(BUCKET_NAME, "input/archive.zip").getContentLength();
+
+        var strategy = new SplitTextUnzipStrategy().withUploadPartBytesLimit(5 * MB).withFileBytesLimit(5 * MB);
+        var um = new S3UnzipManager(s3Client, strategy).withUploadScheduler(uploadScheduler).withReadAheadBufferCount(2);
+        assertThat(um.unzipObjects(BUCKET_NAME, "input", "output").isSuccessful()).isTrue();
+
+        assertThat(registry.counter("s3.unzip.entry.uncompressed.bytes").count()).isEqualTo(content.length);
+        assertThat(registry.timer("s3.unzip.readahead.consumer.stall").count()).isEqualTo(1);
+        assertThat(registry.timer("s3.unzip.readahead.reader.stall").count()).isEqualTo(1);
+        assertThat(registry.counter("s3.unzip.archive.bytes").count()).isPositive().isLessThanOrEqualTo(archiveSize);
+        assertThat(registry.timer("s3.unzip.entry.inflate").count()).isEqualTo(1);
+        assertThat(registry.timer("s3.unzip.archive.duration").count()).isEqualTo(1);
+        assertThat(registry.timer("s3.unzip.part.upload").count()).isEqualTo(s3Client.getRequestCount("uploadPart"));
+
+        var shardBytes = registry.summary("s3.unzip.shard.bytes");
+        assertThat(shardBytes.count()).isGreaterThan(1).isEqualTo(s3Client.getRequestCount("completeMultipartUpload"));
+        assertThat(shardBytes.totalAmount()).isEqualTo(content.length);
+
+        assertThat(registry.get("s3.unzip.upload.queued").gauge().value()).isZero();
+        assertThat(registry.get("s3.unzip.upload.running").gauge().value()).isZero();
+    }
+
+    @Test
+    public void reportsRetriesOfThrottledParts() {
+        putZippedTxtFile(s3Client, BUCKET_NAME, "input/archive.zip", tempDir, "file.txt", 300_000);
+        s3Client.withThrottling(0.5, "uploadPart");
+
+        var retryPolicy = RetryPolicy.DEFAULT.withMaxRetries(30).withBaseBackoffMillis(1).withMaxBackoffMillis(1);
+        var strategy = new NoSplitUnzipStrategy(S3MultipartUpload.Config.DEFAULT.withPartRetryPolicy(retryPolicy))
+                .withUploadPartBytesLimit(5 * MB);
+        var um = new S3UnzipManager(s3Client, strategy).withUploadScheduler(uploadScheduler);
+        assertThat(um.unzipObjects(BUCKET_NAME, "input", "output").isSuccessful()).isTrue();
+
+        var throttledRetries = registry.counter("s3.unzip.part.retries", "throttled", "true").count();
+        assertThat(throttledRetries).isPositive();
+        assertThat(registry.timer("s3.unzip.part.upload").count() + throttledRetries).isEqualTo(s3Client.getRequestCount("uploadPart"));
+    }
+
+}
@@ -0,0 +1,89 @@
+package io.github.nejckorasa.s3;
+
+import io.github.nejckorasa.s3.metrics.UnzipMetrics;
+import io.github.nejckorasa.s3.unzip.S3UnzipManager;
+import io.github.nejckorasa.s3.unzip.strategy.NoSplitUnzipStrategy;
+import io.github.nejckorasa.s3.upload.AdaptiveConcurrency;
+import io.github.nejckorasa.s3.upload.S3UploadScheduler;
+import io.github.nejckorasa.s3.upload.VirtualThreads;
+import io.github.nejckorasa.s3.utils.FakeS3;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.amazonaws.services.s3.internal.Constants.MB;
+import static io.github.nejckorasa.s3.utils.FileUtils.generateStoredZipFile;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs on platform threads unless the tests run on JDK 21+, virtual thread mode must behave the same either way
+ */
+public class VirtualThreadsTest {
+
+    private static final String BUCKET_NAME = "test-bucket";
+
+    private final FakeS3 s3Client = new FakeS3();
+
+    @TempDir
+    private Path tempDir;
+
+    @BeforeEach
+    public void beforeEach() {
+        s3Client.createBucket(BUCKET_NAME);
+    }
+
+    @Test
+    @SneakyThrows
+    public void unzipsEntriesAndUploadsPartsOnVirtualThreads() {
+        byte[] content = generateStoredZipFile(tempDir, "stored.txt", "deflated.txt", 300_000);
+        s3Client.putObject(BUCKET_NAME, "input/archive.zip", new ByteArrayInputStream(Files.readAllBytes(tempDir.resolve("stored.zip"))), null);
+
+        var scheduler = S3UploadScheduler.virtualThreads(new AdaptiveConcurrency(2, 256), 2, UnzipMetrics.NONE);
+        assertThat(scheduler.isVirtualThreads()).isEqualTo(VirtualThreads.isSupported());
+
+        try (var um = new S3UnzipManager(s3Client, new NoSplitUnzipStrategy().withUploadPartBytesLimit(5 * MB))
+                .withUploadScheduler(scheduler)
+                .withVirtualThreads(true)
+                .withRandomAccess(true)
+                .withEntryThreadCount(1)) {
+            var result = um.unzipObjects(BUCKET_NAME, "input", "output");
+            assertThat(result.getUnzippedKeys()).containsExactly("input/archive.zip");
+        }
+
+        assertThat(s3Client.getContent(BUCKET_NAME, "output/stored.txt")).isEqualTo(content);
+        assertThat(s3Client.getContent(BUCKET_NAME, "output/deflated.txt")).isEqualTo(content);
+    }
+
+    @Test
+    @SneakyThrows
+    public void limitsRunningTasksByConcurrency() {
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+
+        try (var scheduler = S3UploadScheduler.virtualThreads(AdaptiveConcurrency.fixed(3), 2, UnzipMetrics.NONE)) {
+            var queue = scheduler.newQueue(100, 100);
+            var futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < 30; i++) {
+                futures.add(queue.submit(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(10);
+                    return running.decrementAndGet();
+                }));
+            }
+            for (var future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        }
+
+        assertThat(maxRunning.get()).isEqualTo(3);
+    }
+}
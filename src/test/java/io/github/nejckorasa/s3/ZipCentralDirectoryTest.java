@@ -0,0 +1,118 @@
+package io.github.nejckorasa.s3;
+
+import io.github.nejckorasa.s3.client.S3Operations;
+import io.github.nejckorasa.s3.unzip.S3UnzipException;
+import io.github.nejckorasa.s3.unzip.S3UnzipManager;
+import io.github.nejckorasa.s3.unzip.ZipCentralDirectory;
+import io.github.nejckorasa.s3.unzip.strategy.NoSplitUnzipStrategy;
+import io.github.nejckorasa.s3.utils.FakeS3;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ZipCentralDirectoryTest {
+
+    private static final String BUCKET_NAME = "test-bucket";
+    private static final String ENTRY_NAME = "file.txt";
+
+    private final FakeS3 s3Client = new FakeS3().withBucket(BUCKET_NAME);
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    @SneakyThrows
+    public void readsZip64CentralDirectory() {
+        byte[] content = "COL1, COL2\nval1, val2\n".repeat(1_000).getBytes(UTF_8);
+        byte[] zip64 = zip64StoredZip(content);
+
+        // the archive is valid for the JDK, which resolves ZIP64 values the same way
+        var path = tempDir.resolve("zip64.zip");
+        Files.write(path, zip64);
+        try (var zipFile = new ZipFile(path.toFile())) {
+            assertThat(zipFile.getInputStream(zipFile.getEntry(ENTRY_NAME)).readAllBytes()).isEqualTo(content);
+        }
+
+        s3Client.putObject(BUCKET_NAME, "input/zip64.zip", new ByteArrayInputStream(zip64), null);
+        var centralDirectory = ZipCentralDirectory.read(S3Operations.of(s3Client), BUCKET_NAME, "input/zip64.zip", zip64.length);
+
+        assertThat(centralDirectory.getEntries()).singleElement().satisfies(entry -> {
+            assertThat(entry.getName()).isEqualTo(ENTRY_NAME);
+            assertThat(entry.isStored()).isTrue();
+            assertThat(entry.getSize()).isEqualTo(content.length);
+            assertThat(entry.getCompressedSize()).isEqualTo(content.length);
+            assertThat(entry.getLocalHeaderOffset()).isZero();
+        });
+
+        var result = new S3UnzipManager(s3Client, new NoSplitUnzipStrategy()).withRandomAccess(true)
+                .unzipObjects(BUCKET_NAME, "input", "output");
+        assertThat(result.isSuccessful()).isTrue();
+        assertThat(s3Client.getContent(BUCKET_NAME, "output/" + ENTRY_NAME)).isEqualTo(content);
+    }
+
+    @Test
+    public void rejectsObjectsShorterThanEndOfCentralDirectory() {
+        for (int length : new int[]{0, 21}) {
+            var key = "input/short-" + length + ".zip";
+            s3Client.putObject(BUCKET_NAME, key, new ByteArrayInputStream(new byte[length]), null);
+
+            assertThatThrownBy(() -> ZipCentralDirectory.read(S3Operations.of(s3Client), BUCKET_NAME, key, length))
+                    .isInstanceOf(S3UnzipException.class)
+                    .hasMessageStartingWith("Not a zip archive");
+        }
+        assertThat(s3Client.getRequestCount("getObject")).isZero();
+    }
+
+    /**
+     * Archive with a single STORED entry, with sizes and offset of the entry, entry count, size and offset of the central directory held
+     * in ZIP64 records: extra fields, end of central directory record and its locator
+     */
+    private static byte[] zip64StoredZip(byte[] content) {
+        byte[] name = ENTRY_NAME.getBytes(UTF_8);
+        var crc = new CRC32();
+        crc.update(content);
+
+        int localHeaderSize = 30 + name.length + 20;
+        int centralHeaderSize = 46 + name.length + 28;
+        long centralDirectoryOffset = localHeaderSize + content.length;
+        long zip64EocdOffset = centralDirectoryOffset + centralHeaderSize;
+        var buffer = ByteBuffer.allocate((int) zip64EocdOffset + 56 + 20 + 22).order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(0x04034b50).putShort((short) 45).putShort((short) 0).putShort((short) ZipEntry.STORED)
+                .putShort((short) 0).putShort((short) 0x21)
+                .putInt((int) crc.getValue()).putInt(-1).putInt(-1)
+                .putShort((short) name.length).putShort((short) 20).put(name)
+                .putShort((short) 0x0001).putShort((short) 16).putLong(content.length).putLong(content.length)
+                .put(content);
+
+        buffer.putInt(0x02014b50).putShort((short) 45).putShort((short) 45).putShort((short) 0).putShort((short) ZipEntry.STORED)
+                .putShort((short) 0).putShort((short) 0x21)
+                .putInt((int) crc.getValue()).putInt(-1).putInt(-1)
+                .putShort((short) name.length).putShort((short) 28).putShort((short) 0)
+                .putShort((short) 0).putShort((short) 0).putInt(0).putInt(-1).put(name)
+                .putShort((short) 0x0001).putShort((short) 24).putLong(content.length).putLong(content.length).putLong(0);
+
+        buffer.putInt(0x06064b50).putLong(44).putShort((short) 45).putShort((short) 45).putInt(0).putInt(0)
+                .putLong(1).putLong(1).putLong(centralHeaderSize).putLong(centralDirectoryOffset);
+
+        buffer.putInt(0x07064b50).putInt(0).putLong(zip64EocdOffset).putInt(1);
+
+        buffer.putInt(0x06054b50).putShort((short) 0).putShort((short) 0).putShort((short) -1).putShort((short) -1)
+                .putInt(-1).putInt(-1).putShort((short) 0);
+
+        return buffer.array();
+    }
+}
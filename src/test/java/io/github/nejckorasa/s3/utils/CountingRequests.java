@@ -0,0 +1,35 @@
+package io.github.nejckorasa.s3.utils;
+
+import com.amazonaws.services.s3.AmazonS3;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps a client so that calls of a client method are counted
+ */
+public class CountingRequests {
+
+    /**
+     * @param s3Client   client to delegate to
+     * @param methodName name of the client method to count
+     * @param calls      counts calls of the method
+     * @return client counting calls of the method
+     */
+    public static AmazonS3 countingRequests(AmazonS3 s3Client, String methodName, AtomicInteger calls) {
+        return (AmazonS3) Proxy.newProxyInstance(
+                AmazonS3.class.getClassLoader(),
+                new Class<?>[]{AmazonS3.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals(methodName)) {
+                        calls.incrementAndGet();
+                    }
+                    try {
+                        return method.invoke(s3Client, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
@@ -0,0 +1,81 @@
+package io.github.nejckorasa.s3.utils;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import org.apache.http.client.methods.HttpGet;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.SocketException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps a client so that downloads fail with a connection reset part way, like a flaky network would
+ */
+public class FailingDownloads {
+
+    /**
+     * @param s3Client       client to delegate to
+     * @param failAfterBytes number of bytes each failing download returns before it fails
+     * @param failures       number of downloads that fail, later downloads succeed
+     * @return client with failing downloads
+     */
+    public static AmazonS3 failingDownloads(AmazonS3 s3Client, long failAfterBytes, int failures) {
+        var remainingFailures = new AtomicInteger(failures);
+        return (AmazonS3) Proxy.newProxyInstance(
+                AmazonS3.class.getClassLoader(),
+                new Class<?>[]{AmazonS3.class},
+                (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(s3Client, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (method.getName().equals("getObject") && args[0] instanceof GetObjectRequest
+                            && remainingFailures.getAndDecrement() > 0) {
+                        var s3Object = (S3Object) result;
+                        s3Object.setObjectContent(new S3ObjectInputStream(
+                                new FailingInputStream(s3Object.getObjectContent(), failAfterBytes), new HttpGet()));
+                    }
+                    return result;
+                });
+    }
+
+    private static class FailingInputStream extends FilterInputStream {
+        private long remainingBytes;
+
+        private FailingInputStream(InputStream in, long failAfterBytes) {
+            super(in);
+            this.remainingBytes = failAfterBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            failIfExhausted();
+            remainingBytes--;
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            failIfExhausted();
+            int n = super.read(b, off, (int) Math.min(len, remainingBytes));
+            if (n > 0) {
+                remainingBytes -= n;
+            }
+            return n;
+        }
+
+        private void failIfExhausted() throws IOException {
+            if (remainingBytes <= 0) {
+                throw new SocketException("Connection reset");
+            }
+        }
+    }
+}
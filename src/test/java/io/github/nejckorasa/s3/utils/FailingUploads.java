@@ -0,0 +1,87 @@
+package io.github.nejckorasa.s3.utils;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
+import com.amazonaws.services.s3.model.UploadPartRequest;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps a client so that part uploads are throttled, like S3 does with 503 SlowDown, stall or fail
+ */
+public class FailingUploads {
+
+    /**
+     * @param s3Client client to delegate to
+     * @param failures number of part uploads that fail, later part uploads succeed
+     * @return client with failing part uploads
+     */
+    public static AmazonS3 throttledUploadParts(AmazonS3 s3Client, int failures) {
+        var remainingFailures = new AtomicInteger(failures);
+        return (AmazonS3) Proxy.newProxyInstance(
+                AmazonS3.class.getClassLoader(),
+                new Class<?>[]{AmazonS3.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("uploadPart") && remainingFailures.getAndDecrement() > 0) {
+                        var exception = new AmazonS3Exception("Please reduce your request rate.");
+                        exception.setStatusCode(503);
+                        exception.setErrorCode("SlowDown");
+                        throw exception;
+                    }
+                    try {
+                        return method.invoke(s3Client, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * @param s3Client    client to delegate to
+     * @param partNumber  part number whose first upload stalls
+     * @param delayMillis time the first upload of the part stalls for
+     * @param uploads     counts uploads of the part
+     * @return client with a stalling part upload
+     */
+    public static AmazonS3 stalledUploadPart(AmazonS3 s3Client, int partNumber, long delayMillis, AtomicInteger uploads) {
+        return (AmazonS3) Proxy.newProxyInstance(
+                AmazonS3.class.getClassLoader(),
+                new Class<?>[]{AmazonS3.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("uploadPart") && ((UploadPartRequest) args[0]).getPartNumber() == partNumber
+                            && uploads.incrementAndGet() == 1) {
+                        Thread.sleep(delayMillis);
+                    }
+                    try {
+                        return method.invoke(s3Client, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * @param s3Client client to delegate to
+     * @return client with failing single request uploads
+     */
+    public static AmazonS3 failingPutObjects(AmazonS3 s3Client) {
+        return (AmazonS3) Proxy.newProxyInstance(
+                AmazonS3.class.getClassLoader(),
+                new Class<?>[]{AmazonS3.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("putObject")) {
+                        var exception = new AmazonS3Exception("Access Denied");
+                        exception.setStatusCode(403);
+                        exception.setErrorCode("AccessDenied");
+                        throw exception;
+                    }
+                    try {
+                        return method.invoke(s3Client, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+}
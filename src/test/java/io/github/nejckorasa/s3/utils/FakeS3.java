@@ -0,0 +1,646 @@
+package io.github.nejckorasa.s3.utils;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AbstractAmazonS3;
+import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.model.*;
+import lombok.SneakyThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.amazonaws.services.s3.internal.Constants.MB;
+
+/**
+ * In-memory {@link AmazonS3} for load and chaos tests of the extraction pipeline, without HTTP and at full speed.
+ *
+ * <p> Supports buckets, ranged GET with ETag constraints, HEAD, paginated ListObjectsV2, PUT, DELETE and multipart uploads including part
+ * copies. Completing a multipart upload validates parts like S3 does, parts other than the last must be at least
+ * {@link #withMinPartBytes(int) min part bytes}.
+ *
+ * <p> Requests can be slowed down with a {@link Latency} distribution and a per-connection bandwidth cap, and fail with throttling (503
+ * SlowDown) or connection resets at given rates. Connection resets of GET requests happen while the content is read, other requests fail
+ * before they take effect. Faults apply to the given operations, named after the {@link com.amazonaws.services.s3.AmazonS3} methods,
+ * or to all operations, and are meant to be configured once test data is in place. Requests are counted per operation.
+ *
+ * <p> Unlike the SDK client, requests are not retried. Thread-safe.
+ */
+public class FakeS3 extends AbstractAmazonS3 {
+
+    private static final int MAX_KEYS = 1000;
+    private static final int TRANSFER_CHUNK_BYTES = 64 * 1024;
+
+    private final Map<String, ConcurrentSkipListMap<String, StoredObject>> buckets = new ConcurrentHashMap<>();
+    private final Map<String, MultipartUpload> uploads = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final AtomicLong uploadIds = new AtomicLong();
+    private final Random random;
+
+    private volatile Latency latency = Latency.none();
+    private volatile long bandwidthBytesPerSecond = 0;
+    private volatile Fault throttling = Fault.NONE;
+    private volatile Fault connectionResets = Fault.NONE;
+    private volatile int minPartBytes = 5 * MB;
+
+    public FakeS3() {
+        this(42);
+    }
+
+    /**
+     * @param seed seed of latencies and faults
+     */
+    public FakeS3(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Creates the bucket
+     */
+    public FakeS3 withBucket(String bucketName) {
+        createBucket(bucketName);
+        return this;
+    }
+
+    public FakeS3 withLatency(Latency latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * @param bytesPerSecond maximum transfer rate of a single request, 0 for unlimited
+     */
+    public FakeS3 withBandwidth(long bytesPerSecond) {
+        this.bandwidthBytesPerSecond = bytesPerSecond;
+        return this;
+    }
+
+    /**
+     * @param rate       probability of a request failing with 503 SlowDown
+     * @param operations operations that are throttled, all if none given
+     */
+    public FakeS3 withThrottling(double rate, String... operations) {
+        this.throttling = new Fault(rate, Set.of(operations));
+        return this;
+    }
+
+    /**
+     * @param rate       probability of a request failing with a connection reset
+     * @param operations operations whose connections are reset, all if none given
+     */
+    public FakeS3 withConnectionResets(double rate, String... operations) {
+        this.connectionResets = new Fault(rate, Set.of(operations));
+        return this;
+    }
+
+    public FakeS3 withMinPartBytes(int minPartBytes) {
+        this.minPartBytes = minPartBytes;
+        return this;
+    }
+
+    /**
+     * @return number of requests of the operation, including failed ones
+     */
+    public int getRequestCount(String operation) {
+        var count = requestCounts.get(operation);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * @return number of multipart uploads initiated and neither completed nor aborted
+     */
+    public int getUploadCount() {
+        return uploads.size();
+    }
+
+    /**
+     * @return content of the object, without latency or faults
+     */
+    public byte[] getContent(String bucketName, String key) {
+        return object(bucketName, key).data.clone();
+    }
+
+    @Override
+    public Bucket createBucket(String bucketName) {
+        buckets.putIfAbsent(bucketName, new ConcurrentSkipListMap<>());
+        return new Bucket(bucketName);
+    }
+
+    @Override
+    public boolean doesBucketExistV2(String bucketName) {
+        return buckets.containsKey(bucketName);
+    }
+
+    @Override
+    public S3Object getObject(String bucketName, String key) {
+        return getObject(new GetObjectRequest(bucketName, key));
+    }
+
+    @Override
+    public S3Object getObject(GetObjectRequest request) {
+        request("getObject");
+        var object = object(request.getBucketName(), request.getKey());
+        if (!request.getMatchingETagConstraints().isEmpty() && !request.getMatchingETagConstraints().contains(object.eTag)) {
+            return null;
+        }
+
+        long length = object.data.length;
+        long start = 0;
+        long end = length - 1;
+        if (request.getRange() != null) {
+            start = request.getRange()[0];
+            end = Math.min(request.getRange()[1], length - 1);
+            if (start >= length) {
+                throw error(416, "InvalidRange", "The requested range is not satisfiable");
+            }
+        }
+
+        var metadata = object.metadata();
+        metadata.setContentLength(end - start + 1);
+        if (request.getRange() != null) {
+            metadata.setHeader(Headers.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+        }
+        long resetAt = connectionResets.occurs("getObject", random) ? start + (long) (random.nextDouble() * (end - start + 1)) : -1;
+
+        var s3Object = new S3Object();
+        s3Object.setBucketName(request.getBucketName());
+        s3Object.setKey(request.getKey());
+        s3Object.setObjectMetadata(metadata);
+        s3Object.setObjectContent(new ContentInputStream(object.data, (int) start, (int) end + 1, (int) resetAt));
+        return s3Object;
+    }
+
+    @Override
+    public String getObjectAsString(String bucketName, String key) {
+        try (var s3Object = getObject(bucketName, key)) {
+            return new String(s3Object.getObjectContent().readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SdkClientException("Failed reading " + key, e);
+        }
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(String bucketName, String key) {
+        return getObjectMetadata(new GetObjectMetadataRequest(bucketName, key));
+    }
+
+    @Override
+    public ObjectMetadata getObjectMetadata(GetObjectMetadataRequest request) {
+        request("getObjectMetadata");
+        return object(request.getBucketName(), request.getKey()).metadata();
+    }
+
+    @Override
+    public boolean doesObjectExist(String bucketName, String key) {
+        request("doesObjectExist");
+        return bucket(bucketName).containsKey(key);
+    }
+
+    @Override
+    public ListObjectsV2Result listObjectsV2(String bucketName) {
+        return listObjectsV2(new ListObjectsV2Request().withBucketName(bucketName));
+    }
+
+    @Override
+    public ListObjectsV2Result listObjectsV2(String bucketName, String prefix) {
+        return listObjectsV2(new ListObjectsV2Request().withBucketName(bucketName).withPrefix(prefix));
+    }
+
+    @Override
+    public ListObjectsV2Result listObjectsV2(ListObjectsV2Request request) {
+        request("listObjectsV2");
+        if (request.getDelimiter() != null) {
+            throw new UnsupportedOperationException("Delimiter is not supported");
+        }
+        var bucket = bucket(request.getBucketName());
+        String prefix = request.getPrefix() == null ? "" : request.getPrefix();
+        int maxKeys = request.getMaxKeys() == null ? MAX_KEYS : Math.min(request.getMaxKeys(), MAX_KEYS);
+
+        String after = request.getContinuationToken() != null
+                ? new String(Base64.getDecoder().decode(request.getContinuationToken()), StandardCharsets.UTF_8)
+                : request.getStartAfter();
+        var candidates = after == null ? bucket.tailMap(prefix, true) : bucket.tailMap(after, false);
+
+        var result = new ListObjectsV2Result();
+        result.setBucketName(request.getBucketName());
+        result.setPrefix(request.getPrefix());
+        result.setMaxKeys(maxKeys);
+        result.setContinuationToken(request.getContinuationToken());
+        String lastKey = null;
+        for (var entry : candidates.entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                if (entry.getKey().compareTo(prefix) > 0) {
+                    break;
+                }
+                continue;
+            }
+            if (result.getObjectSummaries().size() == maxKeys) {
+                result.setTruncated(true);
+                result.setNextContinuationToken(Base64.getEncoder().encodeToString(lastKey.getBytes(StandardCharsets.UTF_8)));
+                break;
+            }
+            result.getObjectSummaries().add(entry.getValue().summary(request.getBucketName(), entry.getKey()));
+            lastKey = entry.getKey();
+        }
+        result.setKeyCount(result.getObjectSummaries().size());
+        return result;
+    }
+
+    @Override
+    public PutObjectResult putObject(String bucketName, String key, String content) {
+        var metadata = new ObjectMetadata();
+        metadata.setContentType("text/plain");
+        return putObject(bucketName, key, new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), metadata);
+    }
+
+    @Override
+    public PutObjectResult putObject(String bucketName, String key, File file) {
+        return putObject(new PutObjectRequest(bucketName, key, file));
+    }
+
+    @Override
+    public PutObjectResult putObject(String bucketName, String key, InputStream input, ObjectMetadata metadata) {
+        return putObject(new PutObjectRequest(bucketName, key, input, metadata));
+    }
+
+    @Override
+    @SneakyThrows(IOException.class)
+    public PutObjectResult putObject(PutObjectRequest request) {
+        request("putObject");
+        var bucket = bucket(request.getBucketName());
+        byte[] data = request.getFile() != null ? Files.readAllBytes(request.getFile().toPath()) : request.getInputStream().readAllBytes();
+        transfer(data.length);
+        resetConnection("putObject");
+
+        var metadata = request.getMetadata();
+        var object = new StoredObject(data, md5Hex(data), metadata != null ? metadata.getContentType() : null);
+        bucket.put(request.getKey(), object);
+
+        var result = new PutObjectResult();
+        result.setETag(object.eTag);
+        return result;
+    }
+
+    @Override
+    public void deleteObject(String bucketName, String key) {
+        deleteObject(new DeleteObjectRequest(bucketName, key));
+    }
+
+    @Override
+    public void deleteObject(DeleteObjectRequest request) {
+        request("deleteObject");
+        bucket(request.getBucketName()).remove(request.getKey());
+    }
+
+    @Override
+    public InitiateMultipartUploadResult initiateMultipartUpload(InitiateMultipartUploadRequest request) {
+        request("initiateMultipartUpload");
+        bucket(request.getBucketName());
+        resetConnection("initiateMultipartUpload");
+
+        String uploadId = "upload-" + uploadIds.incrementAndGet();
+        var metadata = request.getObjectMetadata();
+        uploads.put(uploadId, new MultipartUpload(request.getBucketName(), request.getKey(), metadata != null ? metadata.getContentType() : null));
+
+        var result = new InitiateMultipartUploadResult();
+        result.setBucketName(request.getBucketName());
+        result.setKey(request.getKey());
+        result.setUploadId(uploadId);
+        return result;
+    }
+
+    @Override
+    @SneakyThrows(IOException.class)
+    public UploadPartResult uploadPart(UploadPartRequest request) {
+        request("uploadPart");
+        var upload = upload(request.getUploadId());
+        byte[] data;
+        if (request.getFile() != null) {
+            try (var inputStream = Files.newInputStream(request.getFile().toPath())) {
+                inputStream.skipNBytes(request.getFileOffset());
+                data = inputStream.readNBytes((int) request.getPartSize());
+            }
+        } else {
+            data = request.getInputStream().readNBytes((int) request.getPartSize());
+        }
+        transfer(data.length);
+        resetConnection("uploadPart");
+
+        var part = new StoredObject(data, md5Hex(data), null);
+        upload.parts.put(request.getPartNumber(), part);
+
+        var result = new UploadPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag(part.eTag);
+        return result;
+    }
+
+    @Override
+    public CopyPartResult copyPart(CopyPartRequest request) {
+        request("copyPart");
+        var upload = upload(request.getUploadId());
+        var source = object(request.getSourceBucketName(), request.getSourceKey());
+        int firstByte = request.getFirstByte() == null ? 0 : request.getFirstByte().intValue();
+        int lastByte = request.getLastByte() == null ? source.data.length - 1 : request.getLastByte().intValue();
+        if (firstByte < 0 || lastByte >= source.data.length || firstByte > lastByte) {
+            throw error(400, "InvalidArgument", "Range specified is not valid for source object");
+        }
+        resetConnection("copyPart");
+
+        byte[] data = Arrays.copyOfRange(source.data, firstByte, lastByte + 1);
+        var part = new StoredObject(data, md5Hex(data), null);
+        upload.parts.put(request.getPartNumber(), part);
+
+        var result = new CopyPartResult();
+        result.setPartNumber(request.getPartNumber());
+        result.setETag(part.eTag);
+        return result;
+    }
+
+    @Override
+    public CompleteMultipartUploadResult completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        request("completeMultipartUpload");
+        var upload = upload(request.getUploadId());
+        var partETags = request.getPartETags();
+        if (partETags.isEmpty()) {
+            throw error(400, "MalformedXML", "The XML you provided was not well-formed");
+        }
+
+        var data = new ByteArrayOutputStream();
+        var partMd5s = new ByteArrayOutputStream();
+        int previousPartNumber = 0;
+        for (int i = 0; i < partETags.size(); i++) {
+            var partETag = partETags.get(i);
+            if (partETag.getPartNumber() <= previousPartNumber) {
+                throw error(400, "InvalidPartOrder", "The list of parts was not in ascending order");
+            }
+            previousPartNumber = partETag.getPartNumber();
+            var part = upload.parts.get(partETag.getPartNumber());
+            if (part == null || !part.eTag.equals(partETag.getETag())) {
+                throw error(400, "InvalidPart", "One or more of the specified parts could not be found");
+            }
+            if (i < partETags.size() - 1 && part.data.length < minPartBytes) {
+                throw error(400, "EntityTooSmall", "Your proposed upload is smaller than the minimum allowed size");
+            }
+            data.writeBytes(part.data);
+            partMd5s.writeBytes(md5(part.data));
+        }
+        resetConnection("completeMultipartUpload");
+
+        var object = new StoredObject(data.toByteArray(), md5Hex(partMd5s.toByteArray()) + "-" + partETags.size(), upload.contentType);
+        bucket(upload.bucketName).put(upload.key, object);
+        uploads.remove(request.getUploadId());
+
+        var result = new CompleteMultipartUploadResult();
+        result.setBucketName(upload.bucketName);
+        result.setKey(upload.key);
+        result.setETag(object.eTag);
+        return result;
+    }
+
+    @Override
+    public void abortMultipartUpload(AbortMultipartUploadRequest request) {
+        request("abortMultipartUpload");
+        if (uploads.remove(request.getUploadId()) == null) {
+            throw error(404, "NoSuchUpload", "The specified upload does not exist");
+        }
+    }
+
+    /**
+     * Counts the request, waits for its latency and throttles it
+     */
+    private void request(String operation) {
+        requestCounts.computeIfAbsent(operation, key -> new AtomicInteger()).incrementAndGet();
+        sleep(latency.nextMillis(random));
+        if (throttling.occurs(operation, random)) {
+            throw error(503, "SlowDown", "Please reduce your request rate.");
+        }
+    }
+
+    private void resetConnection(String operation) {
+        if (connectionResets.occurs(operation, random)) {
+            throw new SdkClientException("Unable to execute HTTP request: Connection reset", new SocketException("Connection reset"));
+        }
+    }
+
+    /**
+     * Waits for the time it takes to transfer the bytes at the bandwidth cap
+     */
+    private void transfer(long bytes) {
+        long bandwidth = bandwidthBytesPerSecond;
+        if (bandwidth > 0 && bytes > 0) {
+            sleep(bytes * 1000 / bandwidth);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SdkClientException("Interrupted", e);
+        }
+    }
+
+    private ConcurrentSkipListMap<String, StoredObject> bucket(String bucketName) {
+        var bucket = buckets.get(bucketName);
+        if (bucket == null) {
+            throw error(404, "NoSuchBucket", "The specified bucket does not exist");
+        }
+        return bucket;
+    }
+
+    private StoredObject object(String bucketName, String key) {
+        var object = bucket(bucketName).get(key);
+        if (object == null) {
+            throw error(404, "NoSuchKey", "The specified key does not exist.");
+        }
+        return object;
+    }
+
+    private MultipartUpload upload(String uploadId) {
+        var upload = uploads.get(uploadId);
+        if (upload == null) {
+            throw error(404, "NoSuchUpload", "The specified upload does not exist");
+        }
+        return upload;
+    }
+
+    private static AmazonS3Exception error(int statusCode, String errorCode, String message) {
+        var exception = new AmazonS3Exception(message);
+        exception.setStatusCode(statusCode);
+        exception.setErrorCode(errorCode);
+        exception.setErrorType(statusCode >= 500 ? AmazonS3Exception.ErrorType.Service : AmazonS3Exception.ErrorType.Client);
+        return exception;
+    }
+
+    @SneakyThrows
+    private static byte[] md5(byte[] data) {
+        return MessageDigest.getInstance("MD5").digest(data);
+    }
+
+    private static String md5Hex(byte[] data) {
+        var hex = new StringBuilder();
+        for (byte b : md5(data)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Distribution of request latencies
+     */
+    @FunctionalInterface
+    public interface Latency {
+
+        long nextMillis(Random random);
+
+        static Latency none() {
+            return random -> 0;
+        }
+
+        static Latency fixed(long millis) {
+            return random -> millis;
+        }
+
+        static Latency uniform(long minMillis, long maxMillis) {
+            return random -> minMillis + (long) (random.nextDouble() * (maxMillis - minMillis + 1));
+        }
+
+        /**
+         * Long-tailed latency, most requests take about the median and a few take many times longer, like S3 requests do
+         *
+         * @param sigma spread of the tail, e.g. 0.5 makes about 1 in 20 requests take more than twice the median
+         */
+        static Latency logNormal(long medianMillis, double sigma) {
+            return random -> Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+
+    private static final class Fault {
+        private static final Fault NONE = new Fault(0, Set.of());
+
+        private final double rate;
+        private final Set<String> operations;
+
+        private Fault(double rate, Set<String> operations) {
+            this.rate = rate;
+            this.operations = operations;
+        }
+
+        private boolean occurs(String operation, Random random) {
+            return rate > 0 && (operations.isEmpty() || operations.contains(operation)) && random.nextDouble() < rate;
+        }
+    }
+
+    private static final class StoredObject {
+        private final byte[] data;
+        private final String eTag;
+        private final String contentType;
+        private final Date lastModified = new Date();
+
+        private StoredObject(byte[] data, String eTag, String contentType) {
+            this.data = data;
+            this.eTag = eTag;
+            this.contentType = contentType;
+        }
+
+        private ObjectMetadata metadata() {
+            var metadata = new ObjectMetadata();
+            metadata.setContentLength(data.length);
+            metadata.setHeader(Headers.ETAG, eTag);
+            metadata.setLastModified(lastModified);
+            if (contentType != null) {
+                metadata.setContentType(contentType);
+            }
+            return metadata;
+        }
+
+        private S3ObjectSummary summary(String bucketName, String key) {
+            var summary = new S3ObjectSummary();
+            summary.setBucketName(bucketName);
+            summary.setKey(key);
+            summary.setSize(data.length);
+            summary.setETag(eTag);
+            summary.setLastModified(lastModified);
+            summary.setStorageClass(StorageClass.Standard.toString());
+            return summary;
+        }
+    }
+
+    private static final class MultipartUpload {
+        private final String bucketName;
+        private final String key;
+        private final String contentType;
+        private final Map<Integer, StoredObject> parts = new ConcurrentHashMap<>();
+
+        private MultipartUpload(String bucketName, String key, String contentType) {
+            this.bucketName = bucketName;
+            this.key = key;
+            this.contentType = contentType;
+        }
+    }
+
+    /**
+     * Content of a GET request, read at the bandwidth cap and reset at the given position
+     */
+    private final class ContentInputStream extends InputStream {
+        private final byte[] data;
+        private final int end;
+        private final int resetAt;
+        private int position;
+
+        private ContentInputStream(byte[] data, int start, int end, int resetAt) {
+            this.data = data;
+            this.position = start;
+            this.end = end;
+            this.resetAt = resetAt;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            if (position == resetAt) {
+                throw new SocketException("Connection reset");
+            }
+            int limit = resetAt > position ? resetAt : end;
+            int n = Math.min(Math.min(len, TRANSFER_CHUNK_BYTES), limit - position);
+            System.arraycopy(data, position, b, off, n);
+            position += n;
+            try {
+                transfer(n);
+            } catch (SdkClientException e) {
+                throw new InterruptedIOException("Interrupted while reading");
+            }
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return Math.max(0, (resetAt > position ? resetAt : end) - position);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package io.github.nejckorasa.s3.utils;
 
+import com.amazonaws.services.s3.AmazonS3;
 import lombok.SneakyThrows;
 import lombok.Value;
 import lombok.experimental.UtilityClass;
@@ -14,6 +15,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 import java.util.stream.Stream;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -54,6 +56,79 @@ public class FileUtils {
         return os.toByteArray();
     }
 
+    /**
+     * Generates a zipped text file, see {@link #generateZippedTxtFile(Path, String, int)}, in a new directory of tempDir and puts the
+     * archive to S3
+     *
+     * @return content of the text file
+     */
+    @SneakyThrows
+    public static byte[] putZippedTxtFile(AmazonS3 s3Client, String bucketName, String key, Path tempDir, String filename, int numberOfLines) {
+        var dir = Files.createTempDirectory(tempDir, "zip");
+        byte[] content = generateZippedTxtFile(dir, filename, numberOfLines);
+        s3Client.putObject(bucketName, key, dir.resolve("zipped.zip").toFile());
+        return content;
+    }
+
+    /**
+     * Generates a zipped text file with CRLF line endings and no line break after the last line
+     */
+    @SneakyThrows
+    public static byte[] generateZippedCrlfTxtFile(Path path, String filename, int numberOfLines) {
+        File dir = path.toFile();
+        dir.mkdirs();
+
+        var os = new ByteArrayOutputStream();
+        os.write("COL1, COL2, COL3, COL4".getBytes(UTF_8));
+        for (int i = 1; i <= numberOfLines; i++) {
+            os.write(("\r\nval" + i + "_1, val" + i + "_2, val" + i + "_3, val" + i + "_4").getBytes(UTF_8));
+        }
+        byte[] bytes = os.toByteArray();
+
+        try (var zos = new ZipOutputStream(new FileOutputStream(new File(dir, "zipped.zip")))) {
+            zos.putNextEntry(new ZipEntry(filename));
+            zos.write(bytes);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Generates a zip with a STORED and a DEFLATED entry, both containing the same generated text
+     */
+    @SneakyThrows
+    public static byte[] generateStoredZipFile(Path path, String storedFilename, String deflatedFilename, int numberOfLines) {
+        File dir = path.toFile();
+        dir.mkdirs();
+
+        var os = new ByteArrayOutputStream();
+        os.write("COL1, COL2, COL3, COL4\n".getBytes(UTF_8));
+        for (int i = 1; i <= numberOfLines; i++) {
+            os.write(("val" + i + "_1, val" + i + "_2, val" + i + "_3, val" + i + "_4\n").getBytes(UTF_8));
+        }
+        byte[] bytes = os.toByteArray();
+
+        var crc = new CRC32();
+        crc.update(bytes);
+
+        try (var zos = new ZipOutputStream(new FileOutputStream(new File(dir, "stored.zip")))) {
+            var storedEntry = new ZipEntry(storedFilename);
+            storedEntry.setMethod(ZipEntry.STORED);
+            storedEntry.setSize(bytes.length);
+            storedEntry.setCompressedSize(bytes.length);
+            storedEntry.setCrc(crc.getValue());
+            zos.putNextEntry(storedEntry);
+            zos.write(bytes);
+            zos.closeEntry();
+
+            zos.putNextEntry(new ZipEntry(deflatedFilename));
+            zos.write(bytes);
+            zos.closeEntry();
+        }
+
+        return bytes;
+    }
+
     public static TxtData readTxt(InputStream inputStream) {
         List<String> lines = new ArrayList<>();
         try (var scanner = new Scanner(inputStream)) {